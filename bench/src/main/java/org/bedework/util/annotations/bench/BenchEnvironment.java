@@ -0,0 +1,199 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/** A processing environment over an analyzed compilation for
+ * driving the framework outside of a compiler round. Generated
+ * files are counted and discarded and messages are dropped.
+ *
+ * @author douglm
+ */
+public class BenchEnvironment implements ProcessingEnvironment {
+  private final Elements elements;
+  private final Types types;
+  private final Map<String, String> options;
+
+  private long bytesWritten;
+
+  private final Filer filer = new Filer() {
+    @Override
+    public JavaFileObject createSourceFile(
+            final CharSequence name,
+            final Element... originatingElements) {
+      return new NullFile(name, JavaFileObject.Kind.SOURCE);
+    }
+
+    @Override
+    public JavaFileObject createClassFile(
+            final CharSequence name,
+            final Element... originatingElements) {
+      return new NullFile(name, JavaFileObject.Kind.CLASS);
+    }
+
+    @Override
+    public FileObject createResource(
+            final JavaFileManager.Location location,
+            final CharSequence moduleAndPkg,
+            final CharSequence relativeName,
+            final Element... originatingElements) {
+      return new NullFile(moduleAndPkg + "." + relativeName,
+                          JavaFileObject.Kind.OTHER);
+    }
+
+    @Override
+    public FileObject getResource(
+            final JavaFileManager.Location location,
+            final CharSequence moduleAndPkg,
+            final CharSequence relativeName)
+            throws FileNotFoundException {
+      throw new FileNotFoundException(relativeName.toString());
+    }
+  };
+
+  private final Messager messager = new Messager() {
+    @Override
+    public void printMessage(final Diagnostic.Kind kind,
+                             final CharSequence msg) {
+    }
+
+    @Override
+    public void printMessage(final Diagnostic.Kind kind,
+                             final CharSequence msg,
+                             final Element e) {
+    }
+
+    @Override
+    public void printMessage(final Diagnostic.Kind kind,
+                             final CharSequence msg,
+                             final Element e,
+                             final AnnotationMirror a) {
+    }
+
+    @Override
+    public void printMessage(final Diagnostic.Kind kind,
+                             final CharSequence msg,
+                             final Element e,
+                             final AnnotationMirror a,
+                             final AnnotationValue v) {
+    }
+  };
+
+  /**
+   * @param elements from the compilation
+   * @param types from the compilation
+   * @param options processor options
+   */
+  public BenchEnvironment(final Elements elements,
+                          final Types types,
+                          final Map<String, String> options) {
+    this.elements = elements;
+    this.types = types;
+    this.options = options;
+  }
+
+  /**
+   * @return total bytes written to generated files
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  @Override
+  public Map<String, String> getOptions() {
+    return options;
+  }
+
+  @Override
+  public Messager getMessager() {
+    return messager;
+  }
+
+  @Override
+  public Filer getFiler() {
+    return filer;
+  }
+
+  @Override
+  public Elements getElementUtils() {
+    return elements;
+  }
+
+  @Override
+  public Types getTypeUtils() {
+    return types;
+  }
+
+  @Override
+  public SourceVersion getSourceVersion() {
+    return SourceVersion.RELEASE_17;
+  }
+
+  @Override
+  public Locale getLocale() {
+    return Locale.getDefault();
+  }
+
+  private class NullFile extends SimpleJavaFileObject {
+    NullFile(final CharSequence name,
+             final Kind kind) {
+      super(URI.create("null:///" +
+                               name.toString().replace('.', '/') +
+                               kind.extension),
+            kind);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new OutputStream() {
+        @Override
+        public void write(final int b) {
+          bytesWritten++;
+        }
+
+        @Override
+        public void write(final byte[] b,
+                          final int off,
+                          final int len) {
+          bytesWritten += len;
+        }
+      };
+    }
+  }
+}
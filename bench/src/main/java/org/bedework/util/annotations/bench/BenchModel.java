@@ -0,0 +1,91 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import com.sun.source.util.JavacTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.ToolProvider;
+
+/** An analyzed synthetic model - see SourceGen. The elements and
+ * types remain usable after analysis so the framework can be
+ * driven directly.
+ *
+ * @author douglm
+ */
+public class BenchModel {
+  private final BenchEnvironment env;
+
+  private final List<TypeElement> entities = new ArrayList<>();
+
+  /**
+   * @param n number of entities
+   * @param options processor options
+   */
+  public BenchModel(final int n,
+                    final Map<String, String> options) {
+    final var compiler = ToolProvider.getSystemJavaCompiler();
+    final var fm = new MemoryFileManager(
+            compiler.getStandardFileManager(null, null, null));
+
+    final var task = (JavacTask)compiler.getTask(
+            null, fm, null,
+            List.of("-proc:none"),
+            null,
+            SourceGen.sources(n));
+
+    try {
+      task.analyze();
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+
+    env = new BenchEnvironment(task.getElements(),
+                               task.getTypes(),
+                               options);
+
+    for (int i = 0; i < n; i++) {
+      entities.add(task.getElements()
+                       .getTypeElement(SourceGen.entityName(i)));
+    }
+  }
+
+  public BenchEnvironment getEnv() {
+    return env;
+  }
+
+  public List<TypeElement> getEntities() {
+    return entities;
+  }
+
+  /**
+   * @param i index of entity
+   * @return methods declared by the entity
+   */
+  public List<ExecutableElement> getMethods(final int i) {
+    return ElementFilter.methodsIn(
+            entities.get(i).getEnclosedElements());
+  }
+}
@@ -0,0 +1,46 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import org.bedework.util.annotations.AnnotationProcessor;
+import org.bedework.util.annotations.ProcessState;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+
+/** Processor used for the end to end benchmark.
+ *
+ * @author douglm
+ */
+@SupportedAnnotationTypes(SourceGen.annotationName)
+@SupportedSourceVersion(SourceVersion.RELEASE_17)
+public class BenchProcessor extends AnnotationProcessor {
+  private BenchState state;
+
+  @Override
+  public ProcessState getState(final ProcessingEnvironment env) {
+    if (state == null) {
+      state = new BenchState(env);
+    }
+
+    return state;
+  }
+}
@@ -0,0 +1,117 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import org.bedework.util.annotations.ElementVisitor;
+import org.bedework.util.annotations.ProcessState;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/** Generates a wrapper class for each entity annotated with the
+ * model annotation - a typical use of the framework.
+ *
+ * @author douglm
+ */
+public class BenchState extends ProcessState {
+  /**
+   * @param env the processing environment
+   */
+  public BenchState(final ProcessingEnvironment env) {
+    super(env);
+  }
+
+  @Override
+  public ElementVisitor getVisitor() {
+    return new ElementVisitor();
+  }
+
+  @Override
+  public boolean startClass(final TypeElement el) {
+    if (!annotated(el)) {
+      return false;
+    }
+
+    final var ch = getClassHandler(el.asType(),
+                                   el.getQualifiedName() + "Wrapper");
+    ch.generateClassStart();
+
+    return true;
+  }
+
+  @Override
+  public boolean shouldProcessSuperMethods(final TypeMirror tm) {
+    return tm.toString().startsWith(SourceGen.modelPackage);
+  }
+
+  @Override
+  public void processMethod(final ExecutableElement e) {
+    final var ch = getClassHandler();
+    if (ch == null) {
+      return;
+    }
+
+    final var name = e.getSimpleName().toString();
+    if (!name.startsWith("get") && !name.startsWith("set")) {
+      return;
+    }
+
+    final var sb = new StringBuilder(
+            ch.generateSignature(name,
+                                 e.getParameters(),
+                                 e.getReturnType(),
+                                 e.getThrownTypes()));
+
+    if (e.getReturnType().getKind() == TypeKind.VOID) {
+      sb.append("    entity.").append(name).append("(")
+        .append(e.getParameters().get(0).getSimpleName())
+        .append(");\n");
+    } else {
+      sb.append("    return entity.").append(name).append("();\n");
+    }
+    sb.append("  }\n");
+
+    ch.addMethod(sb.toString());
+  }
+
+  @Override
+  public void endClass(final TypeElement el) {
+    final var ch = getClassHandler();
+    if (ch == null) {
+      return;
+    }
+
+    ch.end();
+    closeClassHandler();
+  }
+
+  private static boolean annotated(final TypeElement el) {
+    for (final var am: el.getAnnotationMirrors()) {
+      if (am.getAnnotationType().toString()
+            .equals(SourceGen.annotationName)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,108 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import org.bedework.util.annotations.ClassHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.ExecutableElement;
+
+/** Type name handling and signature generation in ClassHandler.
+ *
+ * @author douglm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassHandlerBenchmark {
+  /* As produced by TypeMirror.toString() */
+  private static final String[] typeStrings = {
+          "java.lang.String",
+          "int",
+          "java.util.Set<org.bedework.calfacade.BwCategory>",
+          "java.util.List<java.lang.String>",
+          "java.util.Map<java.lang.String,java.util.List<org.bedework.calfacade.BwXproperty>>",
+          "java.util.List<java.util.Map<java.lang.String,java.util.Set<java.lang.Integer>>>",
+          "org.bedework.calfacade.base.BwShareableContainedDbentity<org.bedework.calfacade.BwEvent>",
+  };
+
+  private ClassHandler ch;
+
+  private List<ExecutableElement> methods;
+
+  @Setup
+  public void setup() {
+    final var model = new BenchModel(1, Map.of());
+    final var ps = new BenchState(model.getEnv());
+    ch = new ClassHandler(ps,
+                          model.getEntities().get(0).asType(),
+                          SourceGen.entityName(0) + "Wrapper");
+    methods = model.getMethods(0);
+  }
+
+  @Benchmark
+  public void splitGenericClassName(final Blackhole bh) {
+    for (final var s: typeStrings) {
+      bh.consume(ch.buildGenericClassName(
+              ch.getSplitGenericClassName(s)));
+    }
+  }
+
+  @Benchmark
+  public void buildClassName(final Blackhole bh) {
+    for (final var m: methods) {
+      bh.consume(ch.buildClassName(m.getReturnType()));
+    }
+  }
+
+  @Benchmark
+  public void generateSignature(final Blackhole bh) {
+    for (final var m: methods) {
+      bh.consume(ch.generateSignature(m.getSimpleName().toString(),
+                                      m.getParameters(),
+                                      m.getReturnType(),
+                                      m.getThrownTypes()));
+    }
+  }
+
+  @Benchmark
+  public void fixName(final Blackhole bh) {
+    for (final var s: typeStrings) {
+      bh.consume(ClassHandler.fixName(s));
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/** Compiles the synthetic model in process with BenchProcessor
+ * generating a wrapper per entity.
+ *
+ * @author douglm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+  @Param({"10", "100"})
+  public int classes;
+
+  private JavaCompiler compiler;
+  private StandardJavaFileManager standardFm;
+  private List<JavaFileObject> sources;
+
+  @Setup
+  public void setup() {
+    compiler = ToolProvider.getSystemJavaCompiler();
+    standardFm = compiler.getStandardFileManager(null, null, null);
+    sources = SourceGen.sources(classes);
+  }
+
+  @Benchmark
+  public long compile() {
+    final var fm = new MemoryFileManager(standardFm);
+
+    final var task = compiler.getTask(
+            null, fm, null,
+            List.of("-implicit:none", "-Xlint:none"),
+            null,
+            sources);
+    task.setProcessors(List.of(new BenchProcessor()));
+
+    if (!task.call()) {
+      throw new IllegalStateException("Compilation failed");
+    }
+
+    return fm.getBytesWritten();
+  }
+}
@@ -0,0 +1,125 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/** Holds sources and output in memory so compilation in the
+ * benchmarks does no file I/O.
+ *
+ * @author douglm
+ */
+public class MemoryFileManager
+        extends ForwardingJavaFileManager<StandardJavaFileManager> {
+  private long bytesWritten;
+
+  /**
+   * @param fileManager for platform classes
+   */
+  public MemoryFileManager(final StandardJavaFileManager fileManager) {
+    super(fileManager);
+  }
+
+  /**
+   * @param className qualified name
+   * @param text source
+   * @return in memory source file
+   */
+  public static JavaFileObject sourceFile(final String className,
+                                          final String text) {
+    return new MemoryFile(className, JavaFileObject.Kind.SOURCE,
+                          text, null);
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(
+          final Location location,
+          final String className,
+          final JavaFileObject.Kind kind,
+          final FileObject sibling) {
+    return new MemoryFile(className, kind, null, this);
+  }
+
+  /**
+   * @return total bytes written to output files
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  private static class MemoryFile extends SimpleJavaFileObject {
+    private final ByteArrayOutputStream content;
+    private final String text;
+    private final MemoryFileManager owner;
+
+    MemoryFile(final String className,
+               final Kind kind,
+               final String text,
+               final MemoryFileManager owner) {
+      super(URI.create("mem:///" + className.replace('.', '/') +
+                               kind.extension),
+            kind);
+      this.text = text;
+      this.owner = owner;
+      if (text == null) {
+        content = new ByteArrayOutputStream();
+      } else {
+        content = null;
+      }
+    }
+
+    @Override
+    public CharSequence getCharContent(
+            final boolean ignoreEncodingErrors) {
+      if (text != null) {
+        return text;
+      }
+
+      return content.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new OutputStream() {
+        @Override
+        public void write(final int b) {
+          content.write(b);
+          owner.bytesWritten++;
+        }
+
+        @Override
+        public void write(final byte[] b,
+                          final int off,
+                          final int len) {
+          content.write(b, off, len);
+          owner.bytesWritten += len;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.type.TypeMirror;
+
+/** Type classification in ProcessState - cached within a round and
+ * cold at the start of a round.
+ *
+ * @author douglm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessStateBenchmark {
+  private BenchState ps;
+
+  private final List<TypeMirror> types = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    final var model = new BenchModel(1, Map.of());
+    ps = new BenchState(model.getEnv());
+
+    for (final var m: model.getMethods(0)) {
+      types.add(m.getReturnType());
+    }
+  }
+
+  @Benchmark
+  public void isCollectionCached(final Blackhole bh) {
+    for (final var tm: types) {
+      bh.consume(ps.isCollection(tm));
+    }
+  }
+
+  @Benchmark
+  public void isCollectionCold(final Blackhole bh) {
+    ps.startRound();
+    for (final var tm: types) {
+      bh.consume(ps.isCollection(tm));
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+/** Generates the synthetic entity model used by the benchmarks. A
+ * small base class, a category class and N annotated entities with
+ * a realistic mix of property types.
+ *
+ * @author douglm
+ */
+public class SourceGen {
+  public static final String modelPackage = "bench.model";
+
+  public static final String annotationName =
+          modelPackage + ".Wrap";
+
+  /* Type and name of each entity property */
+  private static final String[][] properties = {
+          {"String", "summary"},
+          {"String", "description"},
+          {"int", "sequence"},
+          {"long", "dtstamp"},
+          {"boolean", "deleted"},
+          {"Integer", "priority"},
+          {"Set<BwCategory>", "categories"},
+          {"List<String>", "comments"},
+          {"Map<String, List<? extends BwCategory>>", "mapping"},
+          {"Deque<String>", "queue"},
+          {"SortedSet<String>", "resources"},
+          {"String[]", "tags"},
+  };
+
+  private SourceGen() {
+  }
+
+  /**
+   * @param i index of entity
+   * @return qualified name of the entity
+   */
+  public static String entityName(final int i) {
+    return modelPackage + ".BwEntity" + i;
+  }
+
+  /**
+   * @param n number of entities
+   * @return source files for the model
+   */
+  public static List<JavaFileObject> sources(final int n) {
+    final var res = new ArrayList<JavaFileObject>();
+
+    res.add(MemoryFileManager.sourceFile(
+            annotationName,
+            "package " + modelPackage + ";\n" +
+                    "import java.lang.annotation.*;\n" +
+                    "@Retention(RetentionPolicy.SOURCE)\n" +
+                    "@Target(ElementType.TYPE)\n" +
+                    "public @interface Wrap {}\n"));
+
+    res.add(MemoryFileManager.sourceFile(
+            modelPackage + ".BwCategory",
+            "package " + modelPackage + ";\n" +
+                    "public class BwCategory {\n" +
+                    property("String", "word") +
+                    "}\n"));
+
+    res.add(MemoryFileManager.sourceFile(
+            modelPackage + ".BwBase",
+            "package " + modelPackage + ";\n" +
+                    "public class BwBase {\n" +
+                    property("int", "id") +
+                    property("String", "owner") +
+                    property("String", "href") +
+                    "}\n"));
+
+    for (int i = 0; i < n; i++) {
+      res.add(MemoryFileManager.sourceFile(entityName(i),
+                                           entitySource(i)));
+    }
+
+    return res;
+  }
+
+  /**
+   * @param i index of entity
+   * @return source for the entity
+   */
+  public static String entitySource(final int i) {
+    final var sb = new StringBuilder();
+
+    sb.append("package ").append(modelPackage).append(";\n")
+      .append("import java.util.*;\n")
+      .append("@Wrap\n")
+      .append("public class BwEntity").append(i)
+      .append(" extends BwBase {\n");
+
+    for (final var prop: properties) {
+      sb.append(property(prop[0], prop[1]));
+    }
+
+    sb.append("}\n");
+
+    return sb.toString();
+  }
+
+  private static String property(final String type,
+                                 final String name) {
+    final var ucName = Character.toUpperCase(name.charAt(0)) +
+            name.substring(1);
+
+    return "  private " + type + " " + name + ";\n" +
+            "  public " + type + " get" + ucName + "() {\n" +
+            "    return " + name + ";\n" +
+            "  }\n" +
+            "  public void set" + ucName + "(final " + type +
+            " val) {\n" +
+            "    " + name + " = val;\n" +
+            "  }\n";
+  }
+}
@@ -0,0 +1,105 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import org.bedework.util.annotations.ClassHandler;
+import org.bedework.util.annotations.Template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.type.TypeMirror;
+
+/** Emitting every section of a template into a generated class.
+ *
+ * @author douglm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+  private static final int sections = 6;
+  private static final int linesPerSection = 25;
+
+  private BenchState ps;
+  private TypeMirror tm;
+  private Path template;
+
+  @Setup
+  public void setup() throws IOException {
+    final var model = new BenchModel(1, Map.of());
+    ps = new BenchState(model.getEnv());
+    tm = model.getEntities().get(0).asType();
+
+    final var sb = new StringBuilder();
+    for (int s = 0; s < sections; s++) {
+      for (int i = 0; i < linesPerSection; i++) {
+        sb.append("  /* section ").append(s)
+          .append(" line ").append(i).append(" */\n");
+      }
+      if (s < sections - 1) {
+        sb.append("++++ insertion point\n");
+      }
+    }
+
+    template = Files.createTempFile("bench", ".template");
+    Files.writeString(template, sb);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(template);
+  }
+
+  @Benchmark
+  public int emitSections() {
+    final var ch = new ClassHandler(ps, tm,
+                                    SourceGen.entityName(0) +
+                                            "Template");
+    final var t = new Template(ch, template.toString());
+
+    int n = 1;
+    while (t.emitSection()) {
+      n++;
+    }
+
+    t.close();
+    ch.close();
+
+    return n;
+  }
+}
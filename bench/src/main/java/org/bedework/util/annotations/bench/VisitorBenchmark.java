@@ -0,0 +1,121 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations.bench;
+
+import org.bedework.util.annotations.ElementVisitor;
+import org.bedework.util.annotations.ProcessState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/** Visiting classes with a ProcessState which does no generation,
+ * so the gc profiler's gc.alloc.rate.norm is the allocation of the
+ * traversal itself. One operation visits one class.
+ *
+ * @author douglm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitorBenchmark {
+  /** Counts methods and does nothing else */
+  public static class CountingState extends ProcessState {
+    private final Element base;
+
+    private int methods;
+
+    /**
+     * @param env the processing environment
+     */
+    public CountingState(final ProcessingEnvironment env) {
+      super(env);
+      base = env.getElementUtils()
+                .getTypeElement(SourceGen.modelPackage + ".BwBase");
+    }
+
+    @Override
+    public ElementVisitor getVisitor() {
+      return new ElementVisitor();
+    }
+
+    @Override
+    public boolean shouldProcessSuperMethods(final TypeMirror tm) {
+      // Avoid allocating so we only measure the framework
+      return (tm.getKind() == TypeKind.DECLARED) &&
+              (((DeclaredType)tm).asElement() == base);
+    }
+
+    @Override
+    public void processMethod(final ExecutableElement el) {
+      methods++;
+    }
+
+    public int getMethods() {
+      return methods;
+    }
+  }
+
+  private CountingState ps;
+
+  private ElementVisitor visitor;
+
+  private List<TypeElement> entities;
+
+  private int next;
+
+  @Setup
+  public void setup() {
+    final var model = new BenchModel(20, Map.of());
+    ps = new CountingState(model.getEnv());
+    visitor = ps.getVisitor();
+    entities = model.getEntities();
+  }
+
+  @Benchmark
+  public int visitClass() {
+    // Visit directly - processClass only handles a class once
+    entities.get(next).accept(visitor, ps);
+    next = (next + 1) % entities.size();
+
+    return ps.getMethods();
+  }
+}
@@ -0,0 +1,249 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import static java.lang.String.format;
+
+/** Generates &lt;Class&gt;Accessor which reads and writes the
+ * properties of an instance by index or name without reflection.
+ *
+ * <p>For each property there is a constant holding its index. A
+ * precomputed map gives the index for a name. get(int) and
+ * set(int, Object) are a switch calling the getter or setter.
+ *
+ * <p>For each primitive type used by some property there are typed
+ * methods - e.g. getLong(int) and setLong(int, long) - which do not
+ * box the value.
+ *
+ * @author douglm
+ */
+public class AccessorGenerator implements SourceGenerator {
+  @Override
+  public String getName() {
+    return "accessor";
+  }
+
+  @Override
+  public String conflicts(final PropertyTable table) {
+    return GeneratorSupport.conflicts(table);
+  }
+
+  @Override
+  public String outFileName(final PropertyTable table) {
+    return table.generatedName("Accessor");
+  }
+
+  @Override
+  public CharSequence generate(final PropertyTable table) {
+    final var className = table.cls().simpleName() + "Accessor";
+    final var entityType = table.entityType();
+    final var props = table.properties();
+
+    final var sb = new StringBuilder(4096);
+
+    GeneratorSupport.header(sb, table, className,
+                            "Reads and writes properties by index " +
+                                    "without reflection.",
+                            "java.util.Map");
+    GeneratorSupport.indexes(sb, props);
+
+    sb.append("  private static final Map<String, Integer> indexes =\n")
+      .append("          Map.ofEntries(");
+    var delim = "\n";
+    for (final var p: props) {
+      sb.append(delim)
+        .append(format("            Map.entry(%s, %s)",
+                       PropertyTable.literal(p.name()),
+                       p.constName()));
+      delim = ",\n";
+    }
+    sb.append(");\n\n");
+
+    sb.append(format("""
+              private final %1$s entity;
+
+              public %2$s(final %1$s entity) {
+                this.entity = entity;
+              }
+
+              public %1$s getEntity() {
+                return entity;
+              }
+
+              public static int propertyCount() {
+                return %3$d;
+              }
+
+              /**
+               * @param name of property
+               * @return index or -1 if unknown
+               */
+              public static int indexOf(final String name) {
+                final Integer index = indexes.get(name);
+                if (index == null) {
+                  return -1;
+                }
+
+                return index;
+              }
+
+              public static String nameOf(final int index) {
+                return names[index];
+              }
+
+            """, entityType, className, props.size()));
+
+    sb.append("""
+              public Object get(final int index) {
+                switch (index) {
+            """);
+    // A statement - a switch expression needs at least one result
+    for (final var p: props) {
+      if (p.readable()) {
+        sb.append(format("""
+                      case %s -> {
+                        return entity.%s();
+                      }
+                """, p.constName(), p.getter().name()));
+      }
+    }
+    sb.append("""
+                  default -> throw new IllegalArgumentException(
+                          "No readable property with index " + index);
+                }
+              }
+
+              public Object get(final String name) {
+                return get(indexOf(name));
+              }
+
+              @SuppressWarnings("unchecked")
+              public void set(final int index, final Object val) {
+                switch (index) {
+            """);
+    for (final var p: props) {
+      if (p.writable()) {
+        sb.append(format("      case %s -> entity.%s((%s)val);\n",
+                         p.constName(), p.setter().name(),
+                         table.castType(p.setterValue())));
+      }
+    }
+    sb.append("""
+                  default -> throw new IllegalArgumentException(
+                          "No writable property with index " + index);
+                }
+              }
+
+              public void set(final String name, final Object val) {
+                set(indexOf(name), val);
+              }
+            """);
+
+    for (final var kind: PropertyTable.ValueKind.values()) {
+      if (kind.isPrimitive()) {
+        primitiveGetter(sb, table, kind);
+        primitiveSetter(sb, table, kind);
+      }
+    }
+
+    sb.append("}\n");
+
+    return sb;
+  }
+
+  /* Only emitted if some getter returns that primitive */
+  private static void primitiveGetter(final StringBuilder sb,
+                                      final PropertyTable table,
+                                      final PropertyTable.ValueKind kind) {
+    var found = false;
+
+    for (final var p: table.properties()) {
+      if (!p.readable() || !p.value().isPrimitive() ||
+              (p.value().kind() != kind)) {
+        continue;
+      }
+
+      if (!found) {
+        sb.append(format("""
+
+                  public %s get%s(final int index) {
+                    return switch (index) {
+                """, kind.getPrimitive(), typedSuffix(kind)));
+        found = true;
+      }
+
+      sb.append(format("      case %s -> entity.%s();\n",
+                       p.constName(), p.getter().name()));
+    }
+
+    if (found) {
+      sb.append(format("""
+                      default -> throw new IllegalArgumentException(
+                              "No %s property with index " + index);
+                    };
+                  }
+                """, kind.getPrimitive()));
+    }
+  }
+
+  /* Only emitted if some setter takes that primitive */
+  private static void primitiveSetter(final StringBuilder sb,
+                                      final PropertyTable table,
+                                      final PropertyTable.ValueKind kind) {
+    var found = false;
+
+    for (final var p: table.properties()) {
+      if (!p.writable()) {
+        continue;
+      }
+
+      final var value = p.setterValue();
+      if (!value.isPrimitive() || (value.kind() != kind)) {
+        continue;
+      }
+
+      if (!found) {
+        sb.append(format("""
+
+                  public void set%s(final int index, final %s val) {
+                    switch (index) {
+                """, typedSuffix(kind), kind.getPrimitive()));
+        found = true;
+      }
+
+      sb.append(format("      case %s -> entity.%s(val);\n",
+                       p.constName(), p.setter().name()));
+    }
+
+    if (found) {
+      sb.append(format("""
+                      default -> throw new IllegalArgumentException(
+                              "No writable %s property with index " + index);
+                    }
+                  }
+                """, kind.getPrimitive()));
+    }
+  }
+
+  /* e.g. "Int" for getInt */
+  private static String typedSuffix(final PropertyTable.ValueKind kind) {
+    final var name = kind.getPrimitive();
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+}
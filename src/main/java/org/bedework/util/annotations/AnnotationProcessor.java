@@ -18,19 +18,79 @@
 */
 package org.bedework.util.annotations;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
-import jakarta.annotation.processing.AbstractProcessor;
-import jakarta.annotation.processing.ProcessingEnvironment;
-import jakarta.annotation.processing.RoundEnvironment;
-import jakarta.annotation.processing.SupportedSourceVersion;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 
 import static java.lang.String.format;
 
-/**
+/** Base class for processors.
+ *
+ * <p>Generated files are created with the class being processed
+ * as the originating element so processors are suitable for
+ * incremental compilation. For gradle the subclass should be
+ * listed as "dynamic" in
+ * META-INF/gradle/incremental.annotation.processors - the type is
+ * then reported through getSupportedOptions.
+ *
+ * <p>Option "skipUpToDate=true", with a resourcePath, skips classes
+ * whose structure has not changed since the output was generated -
+ * only if the compiler can already see the generated classes.
+ * Option "skipUnchanged=true" skips writing generated files whose
+ * content is unchanged - only if the compiler can already see the
+ * generated class, as files not written are not compiled.
+ *
+ * <p>Option "streamingOutput=true" assembles generated classes in
+ * a single buffer per section and writes the sections straight to
+ * the Filer's writer. Such files are always written.
+ *
+ * <p>Option "outputMode" is BUFFERED (the default) or BYTE_BUFFER -
+ * see SourceWriter. "outputBufferSize" sets the BufferedWriter size
+ * in chars, 0 to size it to each file.
+ *
+ * <p>Option "generators" is a comma separated list of
+ * SourceGenerators run for each processed class: "accessor",
+ * "tracker", "codec", "json".
+ *
+ * <p>Option "stripPrefixes" adds to the prefixes removed by
+ * ClassHandler.fixTypeName - comma separated "prefix[=replacement]".
+ *
+ * <p>Option "parallel" is "true" or a number of threads. Classes
+ * for which ProcessState.snapshot returns a value are rendered in
+ * parallel.
+ *
+ * <p>Option "descriptorCache=true", with a resourcePath, keeps
+ * descriptors of classes not compiled from source, e.g. superclasses
+ * in jars, in a file under the resource path.
+ *
+ * <p>Option "metrics=true" times each phase of processing and
+ * emits a summary at the end. "metricsReport=true", with a
+ * resourcePath, also writes the metrics as JSON to
+ * bw-metrics.json.
+ *
+ * <p>Option "logLevel" is one of TRACE, DEBUG or INFO (the default).
+ * "debug=true" is the same as DEBUG.
+ *
+ * <p>Unless the supported annotation types include "*" only classes
+ * carrying - or containing members carrying - a supported
+ * annotation are processed. Classes referring to types which cannot
+ * yet be resolved, e.g. types generated in this round, are deferred
+ * to a later round. Option "claimAnnotations=true" claims the
+ * annotations so other processors do not see them.
+ *
  * @author douglm
  *
  */
@@ -40,6 +100,29 @@ public abstract class AnnotationProcessor
         extends AbstractProcessor {
   private ProcessState pstate;
 
+  private boolean claimAnnotations;
+
+  /* Qualified names of classes deferred to the next round */
+  private List<String> deferred = new ArrayList<>();
+
+  /* Options handled by this class */
+  private static final Set<String> frameworkOptions =
+          Set.of("resourcePath",
+                 "debug",
+                 "logLevel",
+                 "skipUpToDate",
+                 "skipUnchanged",
+                 "streamingOutput",
+                 "stripPrefixes",
+                 "parallel",
+                 "descriptorCache",
+                 "claimAnnotations",
+                 "metrics",
+                 "metricsReport",
+                 "outputMode",
+                 "outputBufferSize",
+                 "generators");
+
   /** Should create new state only on first call.
    *
    * @param env the environment
@@ -47,6 +130,29 @@ public abstract class AnnotationProcessor
    */
   public abstract ProcessState getState(ProcessingEnvironment env);
 
+  /** Override if the processor is not isolating, e.g. one file is
+   * generated from many classes.
+   *
+   * @return gradle incremental processor type - "isolating",
+   *         "aggregating" or null for none.
+   */
+  public String getIncrementalType() {
+    return "isolating";
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    final var opts = new TreeSet<>(super.getSupportedOptions());
+    opts.addAll(frameworkOptions);
+
+    final var incType = getIncrementalType();
+    if (incType != null) {
+      opts.add("org.gradle.annotation.processing." + incType);
+    }
+
+    return opts;
+  }
+
   @Override
   public void init(final ProcessingEnvironment env) {
     super.init(env);
@@ -54,6 +160,12 @@ public abstract class AnnotationProcessor
     pstate = getState(processingEnv);
 
     final Map<String, String> options = env.getOptions();
+    var skipUpToDate = false;
+    LogLevel logLevel = null;
+    var skipUnchanged = false;
+    var descriptorCache = false;
+    var metricsReport = false;
+
     for (final String option: options.keySet()) {
       final var val = options.get(option);
       pstate.note(format("Option: %s=%s",
@@ -68,8 +180,122 @@ public abstract class AnnotationProcessor
         continue;
       }
 
+      if (option.equals("logLevel")) {
+        try {
+          logLevel = LogLevel.valueOf(val.toUpperCase());
+        } catch (final IllegalArgumentException iae) {
+          pstate.warn("Invalid logLevel: " + val);
+        }
+        continue;
+      }
+
+      if (option.equals("skipUpToDate")) {
+        skipUpToDate = "true".equals(val);
+        continue;
+      }
+
+      if (option.equals("descriptorCache")) {
+        descriptorCache = "true".equals(val);
+        continue;
+      }
+
+      if (option.equals("parallel")) {
+        pstate.setParallelism(parallelism(val));
+        continue;
+      }
+
+      if (option.equals("stripPrefixes")) {
+        pstate.getPrefixStripper().addAll(val);
+        continue;
+      }
+
+      if (option.equals("streamingOutput")) {
+        pstate.setStreamingOutput("true".equals(val));
+        continue;
+      }
+
+      if (option.equals("metrics")) {
+        pstate.getMetrics().setEnabled("true".equals(val));
+        continue;
+      }
+
+      if (option.equals("metricsReport")) {
+        metricsReport = "true".equals(val);
+        continue;
+      }
+
+      if (option.equals("claimAnnotations")) {
+        claimAnnotations = "true".equals(val);
+        continue;
+      }
+
+      if (option.equals("generators")) {
+        for (final var name: val.split(",")) {
+          final var gen = SourceGenerator.forName(name.trim());
+          if (gen == null) {
+            pstate.warn("Unknown generator: " + name);
+            continue;
+          }
+          pstate.addGenerator(gen);
+        }
+        continue;
+      }
+
+      if (option.equals("outputMode")) {
+        try {
+          pstate.getSourceWriter().setOutputMode(
+                  SourceWriter.OutputMode.valueOf(val.toUpperCase()));
+        } catch (final IllegalArgumentException iae) {
+          pstate.warn("Invalid outputMode: " + val);
+        }
+        continue;
+      }
+
+      if (option.equals("outputBufferSize")) {
+        try {
+          pstate.getSourceWriter().setBufferSize(Integer.parseInt(val));
+        } catch (final NumberFormatException nfe) {
+          pstate.warn("Invalid value for outputBufferSize: " + val);
+        }
+        continue;
+      }
+
+      if (option.equals("skipUnchanged")) {
+        skipUnchanged = "true".equals(val);
+        continue;
+      }
+
       pstate.option(option, val);
     }
+
+    if (logLevel != null) {
+      // Overrides debug
+      pstate.setLogLevel(logLevel);
+    }
+
+    // Needs the resource path
+    pstate.setSkipUpToDate(skipUpToDate);
+    pstate.getSourceWriter().setSkipUnchanged(skipUnchanged);
+    pstate.setDescriptorCache(descriptorCache);
+    pstate.setMetricsReport(metricsReport);
+    pstate.checkOptions(options);
+  }
+
+  private int parallelism(final String val) {
+    if ("true".equals(val)) {
+      return Runtime.getRuntime().availableProcessors();
+    }
+
+    if ((val == null) || "false".equals(val)) {
+      return 0;
+    }
+
+    try {
+      return Integer.parseInt(val);
+    } catch (final NumberFormatException nfe) {
+      pstate.warn("Invalid value for parallel: " + val);
+      return 0;
+    }
   }
 
   @Override
@@ -85,14 +311,117 @@ public abstract class AnnotationProcessor
       }
     }
 
-    for (final var el: roundEnv.getRootElements()) {
-      pstate.processClass(el);
+    pstate.startRound();
+    pstate.addSourceElements(roundEnv.getRootElements());
+
+    final var last = roundEnv.processingOver();
+    final var toDefer = new ArrayList<String>();
+
+    for (final var el: roundElements(annotations, roundEnv)) {
+      if (!(el instanceof final TypeElement te) ||
+              !pstate.hasUnresolvedTypes(te)) {
+        pstate.processClass(el);
+        continue;
+      }
+
+      if (last) {
+        pstate.warn("Unresolved types - processing anyway: " +
+                            te.getQualifiedName());
+        pstate.processClass(el);
+        continue;
+      }
+
+      if (pstate.debug()) {
+        pstate.note("Unresolved types - deferred: " +
+                            te.getQualifiedName());
+      }
+      toDefer.add(te.getQualifiedName().toString());
     }
 
+    deferred = toDefer;
+
+    pstate.endRound();
+
     if (roundEnv.processingOver()) {
       pstate.processingOver();
+      pstate.persistState();
+      pstate.getMetrics().summary(pstate);
+
+      if (pstate.debug()) {
+        pstate.note(format("Type cache: hits %d, misses %d",
+                           pstate.getCacheHits(),
+                           pstate.getCacheMisses()));
+        pstate.note(format("Render cache: hits %d, misses %d",
+                           pstate.getRenderCache().getHits(),
+                           pstate.getRenderCache().getMisses()));
+        pstate.note(format("Peak output buffer: %d chars",
+                           pstate.getPeakBufferSize()));
+        pstate.note(format("Duplicate classes skipped: %d",
+                           pstate.getDuplicatesSkipped()));
+
+        final var dc = pstate.getDescriptorCache();
+        if (dc != null) {
+          pstate.note(format("Descriptor cache: hits %d, misses %d",
+                             dc.getHits(), dc.getMisses()));
+        }
+      }
+
+      if (pstate.getSourceWriter().skipUnchanged()) {
+        pstate.note(format("Generated files: written %d, unchanged %d",
+                           pstate.getSourceWriter().getWritten(),
+                           pstate.getUnchangedSkipped()));
+      }
+    }
+
+    return claimAnnotations;
+  }
+
+  /* Classes to process this round - those deferred from the previous
+     round followed by those with a supported annotation or all the
+     root elements if we support "*".
+   */
+  private Collection<Element> roundElements(
+          final Set<? extends TypeElement> annotations,
+          final RoundEnvironment roundEnv) {
+    final var res = new LinkedHashSet<Element>();
+
+    // Elements from earlier rounds must be fetched again
+    final var elUtils = processingEnv.getElementUtils();
+    for (final var name: deferred) {
+      final var te = elUtils.getTypeElement(name);
+      if (te != null) {
+        res.add(te);
+      }
+    }
+
+    if (getSupportedAnnotationTypes().contains("*")) {
+      res.addAll(roundEnv.getRootElements());
+      return res;
+    }
+
+    for (final var ann: annotations) {
+      for (final var el: roundEnv.getElementsAnnotatedWith(ann)) {
+        final var te = topLevelClass(el);
+        if (te != null) {
+          res.add(te);
+        }
+      }
+    }
+
+    return res;
+  }
+
+  private static TypeElement topLevelClass(final Element el) {
+    Element cur = el;
+    TypeElement res = null;
+
+    while ((cur != null) && !(cur instanceof PackageElement)) {
+      if (cur instanceof final TypeElement te) {
+        res = te;
+      }
+      cur = cur.getEnclosingElement();
     }
 
-    return false;
+    return res;
   }
 }
\ No newline at end of file
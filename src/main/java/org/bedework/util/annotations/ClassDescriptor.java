@@ -0,0 +1,81 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Modifier;
+
+/** Immutable description of a class built once while it is visited.
+ * Holds resolved names and types so generators need not query the
+ * language model. Safe to use from any thread.
+ *
+ * @param qualifiedName of class
+ * @param packageName of class
+ * @param simpleName of class
+ * @param type of class
+ * @param superclass possibly null
+ * @param modifiers of class
+ * @param methods declared methods followed by those inherited from
+ *                superclasses for which shouldProcessSuperMethods
+ *                returns true. Overridden methods appear once and
+ *                type variables of generic superclasses are
+ *                replaced by the type arguments of this class.
+ * @param imports qualified names of types which need importing for
+ *                code in the same package
+ */
+public record ClassDescriptor(String qualifiedName,
+                              String packageName,
+                              String simpleName,
+                              TypeName type,
+                              TypeName superclass,
+                              Set<Modifier> modifiers,
+                              List<MethodDescriptor> methods,
+                              List<String> imports)
+        implements Serializable {
+  /**
+   * @param fieldName of property
+   * @return getter or null
+   */
+  public MethodDescriptor getter(final String fieldName) {
+    for (final var m: methods) {
+      if (m.isGetter() && m.accessor().fieldName().equals(fieldName)) {
+        return m;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @param fieldName of property
+   * @return setter or null
+   */
+  public MethodDescriptor setter(final String fieldName) {
+    for (final var m: methods) {
+      if (m.isSetter() && m.accessor().fieldName().equals(fieldName)) {
+        return m;
+      }
+    }
+
+    return null;
+  }
+}
@@ -19,15 +19,19 @@
 package org.bedework.util.annotations;
 
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
-import javax.tools.JavaFileObject;
 
 import static java.lang.String.format;
 
@@ -35,6 +39,14 @@ import static java.lang.String.format;
  * variables until close when we write it out. This allows us
  * to add imports as we process the class.
  *
+ * <p>Output is assembled in memory and handed to the SourceWriter
+ * on close, which may skip the write if the content is unchanged.
+ *
+ * <p>In streaming mode the sections are written straight to the
+ * file by end() and anything printed after that goes to the file.
+ * Only the sections are held in memory. Such files are always
+ * written.
+ *
  * @author Mike DOuglass
  */
 public class ClassHandler {
@@ -42,8 +54,15 @@ public class ClassHandler {
   private final TypeMirror tm;
   private final String packageName;
   private final String outFileName;
+  private final Element[] originatingElements;
+
+  private final StringWriter content = new StringWriter();
+  private PrintWriter out;
+
+  /* Streaming mode - out is now the file */
+  private boolean toFile;
 
-  private final PrintWriter out;
+  private static final int sectionChunk = 8192;
 
   private String packageLine;
   private final TreeSet<String> imports = new TreeSet<>();
@@ -53,8 +72,22 @@ public class ClassHandler {
   private final List<String> methods = new ArrayList<>();
   private String classEnd;
 
+  /* Streaming mode - sections are appended to these in order of
+     addition. Fields are not sorted or de-duplicated. */
+  private final boolean streaming;
+  private StringBuilder fieldsBuf;
+  private StringBuilder constructorsBuf;
+  private StringBuilder methodsBuf;
+
   private StringBuilder buf;
 
+  private static final PrefixStripper defaultStripper =
+          PrefixStripper.withDefaults();
+
+  /* Simple name to qualified name of types referenced by simple
+     name. Used to detect clashes. */
+  private final Map<String, String> simpleNames = new HashMap<>();
+
   /**
    * @param ps the processing state
    * @param tm for class we're processing
@@ -63,17 +96,34 @@ public class ClassHandler {
   public ClassHandler(final ProcessState ps,
                       final TypeMirror tm,
                       final String outFileName) {
+    this(ps, tm, outFileName, ps.getOriginatingElements());
+  }
+
+  /**
+   * @param ps the processing state
+   * @param tm for class we're processing
+   * @param outFileName for generated file.
+   * @param originatingElements elements the file is generated from
+   */
+  public ClassHandler(final ProcessState ps,
+                      final TypeMirror tm,
+                      final String outFileName,
+                      final Element... originatingElements) {
     this.ps = ps;
     this.tm = tm;
     packageName = getPackage(tm.toString());
     this.outFileName = outFileName;
-    try {
-      final JavaFileObject outFile =
-              ps.env().getFiler().createSourceFile(outFileName);
-      out = new PrintWriter(outFile.openOutputStream());
-    } catch (final Throwable t) {
-      throw new RuntimeException(t);
+    this.originatingElements = originatingElements;
+    out = new PrintWriter(content);
+
+    streaming = ps.streamingOutput();
+    if (streaming) {
+      fieldsBuf = new StringBuilder();
+      constructorsBuf = new StringBuilder();
+      methodsBuf = new StringBuilder();
     }
+
+    ps.recordGenerated(outFileName, originatingElements);
   }
 
   public void end() {
@@ -81,6 +131,11 @@ public class ClassHandler {
       return;
     }
 
+    if (streaming) {
+      endStreaming();
+      return;
+    }
+
     out.println(packageLine);
     out.println();
 
@@ -90,6 +145,7 @@ public class ClassHandler {
     out.println();
 
     out.println(classStart);
+
     for (final var field: fields) {
       out.println(field);
     }
@@ -105,13 +161,80 @@ public class ClassHandler {
     out.println("}");
   }
 
-  /** Close readers/writers
+  /* Write the sections - and anything already printed - straight
+     to the file, which then replaces the in-memory output. */
+  private void endStreaming() {
+    final var printed = content.getBuffer();
+    ps.recordBufferSize(printed.length() +
+                                fieldsBuf.length() +
+                                constructorsBuf.length() +
+                                methodsBuf.length());
+
+    final var fileOut = new PrintWriter(
+            ps.getSourceWriter().openSections(outFileName,
+                                              originatingElements));
+    appendSection(fileOut, printed);
+    printed.setLength(0);
+
+    fileOut.println(packageLine);
+    fileOut.println();
+
+    for (final var imp: imports) {
+      fileOut.println(imp);
+    }
+    fileOut.println();
+
+    fileOut.println(classStart);
+    appendSection(fileOut, fieldsBuf);
+    fileOut.println();
+    appendSection(fileOut, constructorsBuf);
+    appendSection(fileOut, methodsBuf);
+    fileOut.println("}");
+
+    fieldsBuf = null;
+    constructorsBuf = null;
+    methodsBuf = null;
+
+    out = fileOut;
+    toFile = true;
+  }
+
+  /* PrintWriter.append would copy the whole section to a String -
+     this copies a chunk at a time */
+  private static void appendSection(final PrintWriter pw,
+                                    final CharSequence section) {
+    final int len = section.length();
+    for (int pos = 0; pos < len; pos += sectionChunk) {
+      pw.append(section, pos, Math.min(pos + sectionChunk, len));
+    }
+  }
+
+  /** Write the file - unless unchanged - and close.
    *
    */
   public void close() {
-    if (out != null) {
-      out.close();
+    if (out == null) {
+      return;
+    }
+
+    out.close();
+
+    if (toFile) {
+      final var failed = out.checkError();
+      out = null;
+      if (failed) {
+        throw new RuntimeException("Error writing " + outFileName);
+      }
+      return;
     }
+
+    out = null;
+
+    ps.recordBufferSize(content.getBuffer().length());
+
+    ps.getSourceWriter().write(outFileName,
+                               content.getBuffer(),
+                               originatingElements);
   }
 
   public void startPackage(final String name) {
@@ -122,17 +245,22 @@ public class ClassHandler {
     imports.add(format("import %s;", name));
   }
 
+  private void addImportLine(final String line) {
+    if (line != null) {
+      imports.add(line);
+    }
+  }
+
   public void generateClassStart() {
-    final var split = getSplitGenericClassName(tm.toString());
     final var outClassName = getSimpleClassName(outFileName);
 
     startPackage(getPackage(tm.toString()));
-    final var className = buildGenericClassName(split);
+    final var className = buildClassName(tm);
     classStart = format("public class %s {",
                         outClassName);
     addField(format("  private final %s entity; ",
                     className));
-    constructors.add(
+    addConstructor(
       format("""
                 public %s(final %s entity) {
                   this.entity = entity;
@@ -141,10 +269,29 @@ public class ClassHandler {
   }
 
   public void addField(final String def) {
+    if (streaming) {
+      fieldsBuf.append(def).append(System.lineSeparator());
+      return;
+    }
+
     fields.add(def);
   }
 
+  public void addConstructor(final String def) {
+    if (streaming) {
+      constructorsBuf.append(def).append(System.lineSeparator());
+      return;
+    }
+
+    constructors.add(def);
+  }
+
   public void addMethod(final String def) {
+    if (streaming) {
+      methodsBuf.append(def).append(System.lineSeparator());
+      return;
+    }
+
     methods.add(def);
   }
 
@@ -159,32 +306,32 @@ public class ClassHandler {
           final List<? extends VariableElement> pars,
           final TypeMirror returnType,
           final List<? extends TypeMirror> thrownTypes) {
-    ps.note(format("generateSignature - return type %s ", returnType.toString()));
-    final var rsplit =
-            getSplitGenericClassName(returnType.toString());
+    ps.trace(() -> format("generateSignature - return type %s ",
+                          returnType));
 
-    final var part1 = format("  public %s %s(",
-                             buildGenericClassName(rsplit),
-                             methName);
-    final var buf = new StringBuilder(part1);
+    final var buf = new StringBuilder(128);
+    buf.append("  public ")
+       .append(buildClassName(returnType))
+       .append(' ')
+       .append(methName)
+       .append('(');
 
-    final var pad = " ".repeat(part1.length());
+    final var padLen = buf.length();
 
     var i = 0;
 
     for (final VariableElement par: pars) {
-      ps.note(format("generateSignature - par %s asType %s ", par.toString(), par.asType().toString()));
-      final var psplit =
-              getSplitGenericClassName(par.asType().toString());
-
-      buf.append(format("final %s %s",
-                        buildGenericClassName(psplit),
-                        par.getSimpleName().toString()));
+      ps.trace(() -> format("generateSignature - par %s asType %s ",
+                            par, par.asType()));
+      buf.append("final ")
+         .append(buildClassName(par.asType()))
+         .append(' ')
+         .append(par.getSimpleName());
 
       i++;
       if (i < pars.size()) {
         buf.append(", ");
-        buf.append(pad);
+        buf.append(" ".repeat(padLen));
       }
     }
 
@@ -198,7 +345,7 @@ public class ClassHandler {
         buf.append(delim);
         delim = ", ";
 
-        buf.append(fixName(rt.toString()));
+        buf.append(fixTypeName(rt.toString()));
       }
     }
 
@@ -242,7 +389,7 @@ public class ClassHandler {
    * @return String
    */
   public String getClassName(final TypeMirror tm) {
-    return fixName(tm.toString());
+    return fixTypeName(tm.toString());
   }
 
   /** Return a name we might need to import or null.
@@ -295,26 +442,24 @@ public class ClassHandler {
     return nonGeneric(className);
   }
 
-  /**
+  /** Removes "java.util." and "java.lang." prefixes.
+   *
    * @param str name to fix
    * @return String
    */
-  public static String fixName(String str) {
-    if (str == null) {
-      return null;
-    }
-
-    /* Has to be  a better way than this */
-
-    str = str.replaceAll("java\\.util\\.", "")
-             .replaceAll("java\\.lang\\.", "");
-    /*
-    str = str.replaceAll("org\\.bedework\\.calfacade\\.Bw", "Bw");
-    str = str.replaceAll("org\\.bedework\\.calfacade\\.base\\.Bw", "Bw");
-    str = str.replaceAll("org\\.bedework\\.calfacade\\.wrappers\\.Bw", "Bw");
-     */
+  public static String fixName(final String str) {
+    return defaultStripper.strip(str);
+  }
 
-    return str;
+  /** As fixName but also applies any prefixes registered with the
+   * "stripPrefixes" option, e.g.
+   * "org.bedework.calfacade.Bw=Bw,org.bedework.calfacade.base.Bw=Bw"
+   *
+   * @param str name to fix
+   * @return String
+   */
+  public String fixTypeName(final String str) {
+    return ps.getPrefixStripper().strip(str);
   }
 
   public String getSimpleClassName(final String className) {
@@ -373,23 +518,38 @@ public class ClassHandler {
   public record SplitMethodName(boolean setter,
                                 String fieldName,
                                 String ucFieldName,
-                                String methodName) {
+                                String methodName)
+          implements Serializable {
   }
 
   public SplitMethodName getSplitMethodName(final ExecutableElement e) {
     final var name = e.getSimpleName().toString();
+    final var split = splitMethodName(name);
 
-    if (!name.startsWith("get") && !name.startsWith("set")) {
+    if (split == null) {
       throw new IllegalArgumentException(
               "Invalid method for annotation: " + name);
     }
 
-    final var ucFieldName = name.substring(3);
-    if (!Character.isUpperCase(ucFieldName.charAt(0))) {
-      throw new IllegalArgumentException(
-              "Invalid method for annotation: " + name);
+    return split;
+  }
+
+  /**
+   * @param name of method
+   * @return split name or null if not a getter or setter
+   */
+  public static SplitMethodName splitMethodName(final String name) {
+    if (!name.startsWith("get") && !name.startsWith("set")) {
+      return null;
+    }
+
+    if ((name.length() < 4) ||
+            !Character.isUpperCase(name.charAt(3))) {
+      return null;
     }
 
+    final var ucFieldName = name.substring(3);
+
     final var fieldName =
             ucFieldName.substring(0, 1).toLowerCase() +
             ucFieldName.substring(1);
@@ -513,6 +673,60 @@ public class ClassHandler {
     return -1;
   }
 
+  /** Render the type using simple names where possible, adding
+   * any required imports.
+   *
+   * @param tm the type
+   * @return source form of type
+   */
+  public String buildClassName(final TypeMirror tm) {
+    final var tn = ps.getTypeNames().get(tm);
+    final var rendered = ps.getRenderCache().get(tn, packageName);
+
+    final var declared = rendered.declared();
+    for (int i = 0; i < declared.size(); i++) {
+      final var d = declared.get(i);
+      final var prev = simpleNames.putIfAbsent(d.simpleName(),
+                                               d.qualifiedName());
+      if ((prev != null) && !prev.equals(d.qualifiedName())) {
+        // Clash - render uncached
+        return buildGenericClassName(tn);
+      }
+    }
+
+    final var importLines = rendered.importLines();
+    for (int i = 0; i < importLines.size(); i++) {
+      addImportLine(importLines.get(i));
+    }
+
+    return rendered.text();
+  }
+
+  /** Render the type using simple names where possible, adding
+   * any required imports. A type whose simple name clashes with
+   * one already used is rendered with its qualified name.
+   *
+   * @param tn the type
+   * @return source form of type
+   */
+  public String buildGenericClassName(final TypeName tn) {
+    return tn.render(this::useSimpleName);
+  }
+
+  private boolean useSimpleName(final TypeName.Declared d) {
+    final var prev = simpleNames.putIfAbsent(d.simpleName(),
+                                             d.qualifiedName());
+    if ((prev != null) && !prev.equals(d.qualifiedName())) {
+      return false;
+    }
+
+    if (!d.implicit(packageName)) {
+      addImport(d.qualifiedName());
+    }
+
+    return true;
+  }
+
   public String buildGenericClassName(
           final SplitGenericClassName split) {
     final StringBuilder sb = new StringBuilder(split.typeName);
@@ -0,0 +1,35 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.List;
+
+/** Immutable information about a class, captured on the compiler
+ * thread by ProcessState.snapshot. In parallel mode render is
+ * called on a pool thread so it must not touch the language model
+ * (elements, types) or the ProcessState.
+ *
+ * @author douglm
+ */
+public interface ClassSnapshot {
+  /**
+   * @return the generated sources - possibly empty
+   */
+  List<GeneratedSource> render();
+}
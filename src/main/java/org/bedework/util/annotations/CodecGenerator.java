@@ -0,0 +1,783 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import org.bedework.util.annotations.PropertyTable.Property;
+import org.bedework.util.annotations.PropertyTable.ValueKind;
+import org.bedework.util.annotations.PropertyTable.ValueType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/** Generates &lt;Class&gt;Codec - a compact binary encoding of the
+ * properties of an instance through DataOutput/DataInput or, without
+ * the stream overhead, a ByteBuffer.
+ *
+ * <p>Properties with a getter and setter of the same type are
+ * encoded in index order. Supported types are primitives and their
+ * wrappers, String, enums - as ordinals - and arrays or collections
+ * of those. Arrays, collections and strings are prefixed by their
+ * length, -1 for null. Anything else is listed in a comment and not
+ * encoded.
+ *
+ * <p>encodedSize(entity) gives the number of bytes written, e.g. to
+ * size a ByteBuffer. Strings are decoded through a per-thread
+ * scratch array so reading allocates only the result objects.
+ *
+ * <p>FORMAT is a hash of the encoded properties and their types.
+ * It changes if the encoding does - but not if enum constants are
+ * reordered.
+ *
+ * @author douglm
+ */
+public class CodecGenerator implements SourceGenerator {
+  /* How we read and write primitives */
+  private enum Dialect {
+    STREAM,
+    BUFFER;
+
+    String write(final ValueKind kind,
+                 final String val) {
+      if (this == STREAM) {
+        return switch (kind) {
+          case BOOLEAN -> format("out.writeBoolean(%s);", val);
+          case BYTE -> format("out.writeByte(%s);", val);
+          case SHORT -> format("out.writeShort(%s);", val);
+          case CHAR -> format("out.writeChar(%s);", val);
+          case INT -> format("out.writeInt(%s);", val);
+          case LONG -> format("out.writeLong(%s);", val);
+          case FLOAT -> format("out.writeFloat(%s);", val);
+          case DOUBLE -> format("out.writeDouble(%s);", val);
+          default -> throw new IllegalArgumentException(kind.name());
+        };
+      }
+
+      return switch (kind) {
+        case BOOLEAN -> format("out.put((byte)(%s ? 1 : 0));", val);
+        case BYTE -> format("out.put(%s);", val);
+        case SHORT -> format("out.putShort(%s);", val);
+        case CHAR -> format("out.putChar(%s);", val);
+        case INT -> format("out.putInt(%s);", val);
+        case LONG -> format("out.putLong(%s);", val);
+        case FLOAT -> format("out.putFloat(%s);", val);
+        case DOUBLE -> format("out.putDouble(%s);", val);
+        default -> throw new IllegalArgumentException(kind.name());
+      };
+    }
+
+    String read(final ValueKind kind) {
+      if (this == STREAM) {
+        return switch (kind) {
+          case BOOLEAN -> "in.readBoolean()";
+          case BYTE -> "in.readByte()";
+          case SHORT -> "in.readShort()";
+          case CHAR -> "in.readChar()";
+          case INT -> "in.readInt()";
+          case LONG -> "in.readLong()";
+          case FLOAT -> "in.readFloat()";
+          case DOUBLE -> "in.readDouble()";
+          default -> throw new IllegalArgumentException(kind.name());
+        };
+      }
+
+      return switch (kind) {
+        case BOOLEAN -> "(in.get() != 0)";
+        case BYTE -> "in.get()";
+        case SHORT -> "in.getShort()";
+        case CHAR -> "in.getChar()";
+        case INT -> "in.getInt()";
+        case LONG -> "in.getLong()";
+        case FLOAT -> "in.getFloat()";
+        case DOUBLE -> "in.getDouble()";
+        default -> throw new IllegalArgumentException(kind.name());
+      };
+    }
+  }
+
+  /* Per class state while generating */
+  private static class Gen {
+    final PropertyTable table;
+    final StringBuilder sb = new StringBuilder(8192);
+
+    /* Enum type to name of field holding values() */
+    final Map<String, String> enumValues = new LinkedHashMap<>();
+
+    boolean strings;
+
+    Gen(final PropertyTable table) {
+      this.table = table;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "codec";
+  }
+
+  @Override
+  public String conflicts(final PropertyTable table) {
+    return GeneratorSupport.conflicts(table);
+  }
+
+  @Override
+  public String outFileName(final PropertyTable table) {
+    return table.generatedName("Codec");
+  }
+
+  @Override
+  public CharSequence generate(final PropertyTable table) {
+    final var g = new Gen(table);
+    final var className = table.cls().simpleName() + "Codec";
+    final var entityType = table.entityType();
+
+    final var sel = GeneratorSupport.select(
+            table,
+            p -> p.readable() && p.writable() &&
+                    p.value().equals(p.setterValue()) &&
+                    supported(p.value()));
+    final var encoded = sel.included();
+
+    final var sb = g.sb;
+
+    GeneratorSupport.header(sb, table, className,
+                            "Binary encoding of the properties.",
+                            "java.io.DataInput",
+                            "java.io.DataOutput",
+                            "java.io.IOException",
+                            "java.nio.ByteBuffer");
+    sb.append(format("  public static final int FORMAT = %d;\n\n",
+                     formatHash(g, encoded)));
+    GeneratorSupport.excluded(sb, table, "Not encoded", sel.excluded());
+
+    // Writing the methods finds the enums and strings we need
+    final var methods = new StringBuilder(sb.length());
+    final var saveLen = sb.length();
+
+    for (final var d: Dialect.values()) {
+      final String outType;
+      final String inType;
+      final String ioe;
+      if (d == Dialect.STREAM) {
+        outType = "DataOutput";
+        inType = "DataInput";
+        ioe = " throws IOException";
+      } else {
+        outType = "ByteBuffer";
+        inType = "ByteBuffer";
+        ioe = "";
+      }
+
+      sb.append(format("""
+                public static void writeTo(final %s entity,
+                                           final %s out)%s {
+              """, entityType, outType, ioe));
+      for (final var p: encoded) {
+        sb.append(format("    // %s\n", p.name()));
+        write(g, d, p.value(), format("entity.%s()", p.getter().name()),
+              "    ");
+      }
+      sb.append("  }\n\n");
+
+      sb.append(format("""
+                public static void readFrom(final %s in,
+                                            final %s entity)%s {
+              """, inType, entityType, ioe));
+      for (final var p: encoded) {
+        sb.append(format("    // %s\n", p.name()));
+        read(g, d, p.value(), format("entity.%s", p.setter().name()),
+             "    ");
+      }
+      sb.append("  }\n\n");
+    }
+
+    encodedSize(g, encoded, entityType);
+
+    methods.append(sb, saveLen, sb.length());
+    sb.setLength(saveLen);
+
+    for (final var ent: g.enumValues.entrySet()) {
+      sb.append(format("  private static final %s[] %s = %1$s.values();\n\n",
+                       ent.getKey(), ent.getValue()));
+    }
+
+    sb.append(format("  private %s() {\n  }\n\n", className));
+    sb.append(methods);
+
+    if (!g.enumValues.isEmpty()) {
+      sb.append("""
+                private static <E> E enumOf(final E[] vals, final int ordinal) {
+                  if (ordinal < 0) {
+                    return null;
+                  }
+
+                  return vals[ordinal];
+                }
+
+              """);
+    }
+
+    if (g.strings) {
+      stringMethods(sb);
+    }
+
+    // Remove blank line before closing brace
+    sb.setLength(sb.length() - 1);
+    sb.append("}\n");
+
+    return sb;
+  }
+
+  private static void encodedSize(final Gen g,
+                                  final List<Property> encoded,
+                                  final String entityType) {
+    final var sb = g.sb;
+
+    // Primitives and enums have a fixed size
+    var fixed = 0;
+    final var body = new StringBuilder();
+    for (final var p: encoded) {
+      final var vt = p.value();
+      final var getter = format("entity.%s()", p.getter().name());
+
+      if (vt.isPrimitive()) {
+        fixed += byteSize(vt.kind());
+        continue;
+      }
+
+      if (vt.kind() == ValueKind.ENUM) {
+        fixed += 4;
+        continue;
+      }
+
+      body.append(format("    // %s\n", p.name()));
+
+      if (vt.kind() == ValueKind.STRING) {
+        g.strings = true;
+        body.append(format("    size += stringSize(%s);\n", getter));
+        continue;
+      }
+
+      body.append(format("    {\n      final %s v = %s;\n",
+                         g.table.render(vt.type()), getter));
+
+      if (GeneratorSupport.scalar(vt)) {
+        // Boxed
+        body.append(format("      size += (v == null) ? 1 : %d;\n",
+                           1 + byteSize(vt.kind())));
+        body.append("    }\n");
+        continue;
+      }
+
+      final var el = vt.element();
+      final String count;
+      if (vt.category() == TypeCategory.ARRAY) {
+        count = "v.length";
+      } else {
+        count = "v.size()";
+      }
+
+      body.append("      size += 4;\n");
+      body.append("      if (v != null) {\n");
+      if (el.isPrimitive() || (el.kind() == ValueKind.ENUM)) {
+        final int elSize;
+        if (el.isPrimitive()) {
+          elSize = byteSize(el.kind());
+        } else {
+          elSize = 4;
+        }
+
+        if (elSize == 1) {
+          body.append(format("        size += %s;\n", count));
+        } else {
+          body.append(format("        size += %s * %d;\n", count, elSize));
+        }
+      } else {
+        final String elSize;
+        if (el.kind() == ValueKind.STRING) {
+          g.strings = true;
+          elSize = "stringSize(el)";
+        } else {
+          elSize = format("(el == null) ? 1 : %d",
+                          1 + byteSize(el.kind()));
+        }
+
+        body.append(format("""
+                          for (final %s el: v) {
+                            size += %s;
+                          }
+                  """, elementType(g, el), elSize));
+      }
+      body.append("      }\n    }\n");
+    }
+
+    sb.append(format("""
+              /**
+               * @param entity to encode
+               * @return number of bytes writeTo will write
+               */
+              public static int encodedSize(final %s entity) {
+                int size = %d;
+
+            """, entityType, fixed));
+    sb.append(body);
+    sb.append("""
+
+                return size;
+              }
+
+            """);
+  }
+
+  private static int byteSize(final ValueKind kind) {
+    return switch (kind) {
+      case BOOLEAN, BYTE -> 1;
+      case SHORT, CHAR -> 2;
+      case INT, FLOAT -> 4;
+      case LONG, DOUBLE -> 8;
+      default -> throw new IllegalArgumentException(kind.name());
+    };
+  }
+
+  /* Collections also need a class to create when reading and
+     elements which may be null */
+  private static boolean supported(final ValueType vt) {
+    if (!GeneratorSupport.scalarOrMulti(vt)) {
+      return false;
+    }
+
+    return (vt.category() != TypeCategory.COLLECTION) ||
+            (!vt.element().isPrimitive() &&
+                     (collectionImpl(vt) != null));
+  }
+
+  /* Concrete class created when reading */
+  private static String collectionImpl(final ValueType vt) {
+    if (!(vt.type() instanceof final TypeName.Declared d)) {
+      return null;
+    }
+
+    return switch (d.qualifiedName()) {
+      case "java.util.Collection", "java.util.List",
+              "java.util.ArrayList" -> "java.util.ArrayList";
+      case "java.util.Set", "java.util.LinkedHashSet" ->
+              "java.util.LinkedHashSet";
+      case "java.util.HashSet" -> "java.util.HashSet";
+      case "java.util.SortedSet", "java.util.NavigableSet",
+              "java.util.TreeSet" -> "java.util.TreeSet";
+      case "java.util.Queue", "java.util.Deque",
+              "java.util.ArrayDeque" -> "java.util.ArrayDeque";
+      case "java.util.LinkedList" -> "java.util.LinkedList";
+      default -> null;
+    };
+  }
+
+  /* Constructed with the size where there is such a constructor */
+  private static boolean sized(final String impl) {
+    return !"java.util.TreeSet".equals(impl) &&
+            !"java.util.LinkedList".equals(impl);
+  }
+
+  private static void write(final Gen g,
+                            final Dialect d,
+                            final ValueType vt,
+                            final String expr,
+                            final String indent) {
+    final var sb = g.sb;
+
+    if (GeneratorSupport.scalar(vt)) {
+      writeScalar(g, d, vt, expr, indent);
+      return;
+    }
+
+    final var elType = elementType(g, vt.element());
+
+    sb.append(indent).append("{\n");
+    sb.append(format("%s  final %s v = %s;\n", indent,
+                     g.table.render(vt.type()), expr));
+    sb.append(format("%s  if (v == null) {\n", indent));
+    sb.append(format("%s    %s\n", indent, d.write(ValueKind.INT, "-1")));
+    sb.append(format("%s  } else {\n", indent));
+
+    final String len;
+    if (vt.category() == TypeCategory.ARRAY) {
+      len = "v.length";
+    } else {
+      len = "v.size()";
+    }
+    sb.append(format("%s    %s\n", indent, d.write(ValueKind.INT, len)));
+
+    if ((vt.category() == TypeCategory.ARRAY) &&
+            vt.element().isPrimitive() &&
+            (vt.element().kind() == ValueKind.BYTE)) {
+      if (d == Dialect.STREAM) {
+        sb.append(format("%s    out.write(v);\n", indent));
+      } else {
+        sb.append(format("%s    out.put(v);\n", indent));
+      }
+    } else {
+      sb.append(format("%s    for (final %s el: v) {\n", indent, elType));
+      writeScalar(g, d, vt.element(), "el", indent + "      ");
+      sb.append(format("%s    }\n", indent));
+    }
+
+    sb.append(format("%s  }\n", indent));
+    sb.append(indent).append("}\n");
+  }
+
+  private static void writeScalar(final Gen g,
+                                  final Dialect d,
+                                  final ValueType vt,
+                                  final String expr,
+                                  final String indent) {
+    final var sb = g.sb;
+
+    if (vt.isPrimitive()) {
+      sb.append(indent).append(d.write(vt.kind(), expr)).append('\n');
+      return;
+    }
+
+    if (vt.kind() == ValueKind.STRING) {
+      g.strings = true;
+      sb.append(format("%swriteString(out, %s);\n", indent, expr));
+      return;
+    }
+
+    /* Evaluate a getter call once. Elements in a loop are already
+       in a variable. */
+    final var simple = isIdentifier(expr);
+    final String v;
+    final String ind;
+    if (simple) {
+      v = expr;
+      ind = indent;
+    } else {
+      v = "v";
+      ind = indent + "  ";
+
+      final String type;
+      if (vt.kind() == ValueKind.ENUM) {
+        type = g.table.render(vt.type());
+      } else {
+        type = vt.kind().getBoxed();
+      }
+
+      sb.append(indent).append("{\n");
+      sb.append(format("%s  final %s v = %s;\n", indent, type, expr));
+    }
+
+    if (vt.kind() == ValueKind.ENUM) {
+      sb.append(format("%s%s\n", ind,
+                       d.write(ValueKind.INT,
+                               format("(%1$s == null) ? -1 : %1$s.ordinal()",
+                                      v))));
+    } else {
+      // Boxed
+      sb.append(format("%s%s\n", ind,
+                       d.write(ValueKind.BOOLEAN, v + " != null")));
+      sb.append(format("%sif (%s != null) {\n", ind, v));
+      sb.append(format("%s  %s\n", ind, d.write(vt.kind(), v)));
+      sb.append(format("%s}\n", ind));
+    }
+
+    if (!simple) {
+      sb.append(indent).append("}\n");
+    }
+  }
+
+  private static boolean isIdentifier(final String expr) {
+    for (int i = 0; i < expr.length(); i++) {
+      if (!Character.isJavaIdentifierPart(expr.charAt(i))) {
+        return false;
+      }
+    }
+
+    return !expr.isEmpty();
+  }
+
+  /* setter is e.g. "entity.setName" */
+  private static void read(final Gen g,
+                           final Dialect d,
+                           final ValueType vt,
+                           final String setter,
+                           final String indent) {
+    final var sb = g.sb;
+
+    if (GeneratorSupport.scalar(vt)) {
+      sb.append(format("%s%s(%s);\n", indent, setter,
+                       readScalar(g, d, vt)));
+      return;
+    }
+
+    final var el = vt.element();
+    final var elType = elementType(g, el);
+
+    sb.append(indent).append("{\n");
+    sb.append(format("%s  final int n = %s;\n", indent,
+                     d.read(ValueKind.INT)));
+    sb.append(format("%s  if (n < 0) {\n", indent));
+    sb.append(format("%s    %s(null);\n", indent, setter));
+    sb.append(format("%s  } else {\n", indent));
+
+    if (vt.category() == TypeCategory.ARRAY) {
+      sb.append(format("%s    final %s v = %s;\n", indent,
+                       g.table.render(vt.type()),
+                       newArray(g, vt)));
+
+      if (el.isPrimitive() && (el.kind() == ValueKind.BYTE)) {
+        if (d == Dialect.STREAM) {
+          sb.append(format("%s    in.readFully(v);\n", indent));
+        } else {
+          sb.append(format("%s    in.get(v);\n", indent));
+        }
+      } else {
+        sb.append(format("%s    for (int i = 0; i < n; i++) {\n",
+                         indent));
+        sb.append(format("%s      v[i] = %s;\n", indent,
+                         readScalar(g, d, el)));
+        sb.append(format("%s    }\n", indent));
+      }
+    } else {
+      final var impl = collectionImpl(vt);
+      final String size;
+      if (sized(impl)) {
+        size = "n";
+      } else {
+        size = "";
+      }
+
+      sb.append(format("%s    final %s<%s> v = new %2$s<>(%s);\n",
+                       indent, impl, elType, size));
+      sb.append(format("%s    for (int i = 0; i < n; i++) {\n", indent));
+      sb.append(format("%s      v.add(%s);\n", indent,
+                       readScalar(g, d, el)));
+      sb.append(format("%s    }\n", indent));
+    }
+
+    sb.append(format("%s    %s(v);\n", indent, setter));
+    sb.append(format("%s  }\n", indent));
+    sb.append(indent).append("}\n");
+  }
+
+  private static String readScalar(final Gen g,
+                                   final Dialect d,
+                                   final ValueType vt) {
+    if (vt.isPrimitive()) {
+      return d.read(vt.kind());
+    }
+
+    if (vt.kind() == ValueKind.STRING) {
+      g.strings = true;
+      return "readString(in)";
+    }
+
+    if (vt.kind() == ValueKind.ENUM) {
+      return format("enumOf(%s, %s)", enumValues(g, vt),
+                    d.read(ValueKind.INT));
+    }
+
+    // Boxed
+    return format("%s ? %s.valueOf(%s) : null",
+                  d.read(ValueKind.BOOLEAN),
+                  vt.kind().getBoxed(),
+                  d.read(vt.kind()));
+  }
+
+  /* new String[n] or new int[n][] etc */
+  private static String newArray(final Gen g,
+                                 final ValueType vt) {
+    final var el = vt.element();
+    var elType = g.table.render(el.type());
+
+    // Put the size in the first dimension - int[][] -> int[n][]
+    final var dims = elType.indexOf('[');
+    if (dims < 0) {
+      return format("new %s[n]", elType);
+    }
+
+    return format("new %s[n]%s", elType.substring(0, dims),
+                  elType.substring(dims));
+  }
+
+  private static String elementType(final Gen g,
+                                    final ValueType el) {
+    return g.table.render(el.type());
+  }
+
+  private static String enumValues(final Gen g,
+                                   final ValueType vt) {
+    final var type = g.table.render(vt.type());
+    return g.enumValues.computeIfAbsent(
+            type, k -> "enumValues" + g.enumValues.size());
+  }
+
+  private static int formatHash(final Gen g,
+                                final List<Property> encoded) {
+    final var sb = new StringBuilder();
+    for (final var p: encoded) {
+      sb.append(p.name()).append(':')
+        .append(g.table.render(p.value().type())).append(';');
+    }
+
+    return sb.toString().hashCode();
+  }
+
+  /* Strings are written as a char count followed by each char as
+     1 to 3 bytes - in the manner of modified UTF-8 - so writing
+     needs no intermediate array. */
+  private static void stringMethods(final StringBuilder sb) {
+    sb.append("""
+              /* Reused for decoding strings - one per thread */
+              private static final ThreadLocal<char[]> scratch =
+                      ThreadLocal.withInitial(() -> new char[64]);
+
+              private static char[] scratch(final int len) {
+                final char[] chars = scratch.get();
+                if (chars.length >= len) {
+                  return chars;
+                }
+
+                final char[] res = new char[Math.max(len, chars.length * 2)];
+                scratch.set(res);
+
+                return res;
+              }
+
+              private static int stringSize(final String s) {
+                if (s == null) {
+                  return 4;
+                }
+
+                final int len = s.length();
+                int size = 4 + len;
+                for (int i = 0; i < len; i++) {
+                  final char c = s.charAt(i);
+                  if ((c == 0) || (c >= 0x80)) {
+                    size += (c < 0x800) ? 1 : 2;
+                  }
+                }
+
+                return size;
+              }
+
+              private static void writeString(final DataOutput out,
+                                              final String s)
+                      throws IOException {
+                if (s == null) {
+                  out.writeInt(-1);
+                  return;
+                }
+
+                final int len = s.length();
+                out.writeInt(len);
+                for (int i = 0; i < len; i++) {
+                  final char c = s.charAt(i);
+                  if ((c > 0) && (c < 0x80)) {
+                    out.writeByte(c);
+                  } else if (c < 0x800) {
+                    out.writeByte(0xc0 | (c >> 6));
+                    out.writeByte(0x80 | (c & 0x3f));
+                  } else {
+                    out.writeByte(0xe0 | (c >> 12));
+                    out.writeByte(0x80 | ((c >> 6) & 0x3f));
+                    out.writeByte(0x80 | (c & 0x3f));
+                  }
+                }
+              }
+
+              private static void writeString(final ByteBuffer out,
+                                              final String s) {
+                if (s == null) {
+                  out.putInt(-1);
+                  return;
+                }
+
+                final int len = s.length();
+                out.putInt(len);
+                for (int i = 0; i < len; i++) {
+                  final char c = s.charAt(i);
+                  if ((c > 0) && (c < 0x80)) {
+                    out.put((byte)c);
+                  } else if (c < 0x800) {
+                    out.put((byte)(0xc0 | (c >> 6)));
+                    out.put((byte)(0x80 | (c & 0x3f)));
+                  } else {
+                    out.put((byte)(0xe0 | (c >> 12)));
+                    out.put((byte)(0x80 | ((c >> 6) & 0x3f)));
+                    out.put((byte)(0x80 | (c & 0x3f)));
+                  }
+                }
+              }
+
+              private static String readString(final DataInput in)
+                      throws IOException {
+                final int len = in.readInt();
+                if (len < 0) {
+                  return null;
+                }
+
+                final char[] chars = scratch(len);
+                for (int i = 0; i < len; i++) {
+                  final int b = in.readUnsignedByte();
+                  if (b < 0x80) {
+                    chars[i] = (char)b;
+                  } else if (b < 0xe0) {
+                    chars[i] = (char)(((b & 0x1f) << 6) |
+                            (in.readUnsignedByte() & 0x3f));
+                  } else {
+                    final int b2 = in.readUnsignedByte();
+                    chars[i] = (char)(((b & 0x0f) << 12) |
+                            ((b2 & 0x3f) << 6) |
+                            (in.readUnsignedByte() & 0x3f));
+                  }
+                }
+
+                return new String(chars, 0, len);
+              }
+
+              private static String readString(final ByteBuffer in) {
+                final int len = in.getInt();
+                if (len < 0) {
+                  return null;
+                }
+
+                final char[] chars = scratch(len);
+                for (int i = 0; i < len; i++) {
+                  final int b = in.get() & 0xff;
+                  if (b < 0x80) {
+                    chars[i] = (char)b;
+                  } else if (b < 0xe0) {
+                    chars[i] = (char)(((b & 0x1f) << 6) |
+                            (in.get() & 0x3f));
+                  } else {
+                    final int b2 = in.get() & 0xff;
+                    chars[i] = (char)(((b & 0x0f) << 12) |
+                            ((b2 & 0x3f) << 6) |
+                            (in.get() & 0x3f));
+                  }
+                }
+
+                return new String(chars, 0, len);
+              }
+
+            """);
+  }
+}
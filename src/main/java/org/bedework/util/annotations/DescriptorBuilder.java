@@ -0,0 +1,222 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/** Builds ClassDescriptors from the language model on the compiler
+ * thread.
+ *
+ * @author douglm
+ */
+public class DescriptorBuilder {
+  private final ProcessState ps;
+
+  /**
+   * @param ps the processing state
+   */
+  public DescriptorBuilder(final ProcessState ps) {
+    this.ps = ps;
+  }
+
+  /**
+   * @param el the class
+   * @return descriptor
+   */
+  public ClassDescriptor build(final TypeElement el) {
+    final var methods = new ArrayList<MethodDescriptor>();
+
+    final TypeMirror superD = el.getSuperclass();
+    if (!ps.shouldProcessSuperMethods(superD)) {
+      addMethods(methods, null, el);
+    } else if (!((TypeElement)ps.asElement(superD))
+            .getTypeParameters().isEmpty()) {
+      /* A generic superclass descriptor holds unresolved type
+         variables so cannot be reused. */
+      addMemberMethods(methods, el);
+    } else {
+      final Set<String> seen = new HashSet<>();
+      addMethods(methods, seen, el);
+
+      /* The superclass descriptor holds its own inherited methods and
+         may come from the persistent cache. */
+      final var superCd = ps.getDescriptor(
+              (TypeElement)ps.asElement(superD));
+
+      // Subclass methods come first so overridden methods are dropped
+      for (final var md: superCd.methods()) {
+        if (seen.add(md.signatureKey())) {
+          methods.add(md);
+        }
+      }
+    }
+
+    final var packageName = ps.env().getElementUtils()
+                              .getPackageOf(el)
+                              .getQualifiedName().toString();
+    final var type = ps.getTypeNames().get(el.asType());
+
+    TypeName superclass = null;
+    if (el.getSuperclass().getKind() == TypeKind.DECLARED) {
+      superclass = ps.getTypeNames().get(el.getSuperclass());
+    }
+
+    final var imports = new TreeSet<String>();
+    for (final var m: methods) {
+      addImports(imports, packageName, m.returnType());
+      for (final var p: m.parameters()) {
+        addImports(imports, packageName, p.type());
+      }
+      for (final var t: m.thrownTypes()) {
+        addImports(imports, packageName, t);
+      }
+    }
+
+    return new ClassDescriptor(el.getQualifiedName().toString(),
+                               packageName,
+                               el.getSimpleName().toString(),
+                               type,
+                               superclass,
+                               Set.copyOf(el.getModifiers()),
+                               Collections.unmodifiableList(methods),
+                               List.copyOf(imports));
+  }
+
+  /**
+   * @param e the method
+   * @param declaringClass qualified name of declaring class
+   * @return descriptor
+   */
+  public MethodDescriptor build(final ExecutableElement e,
+                                final String declaringClass) {
+    return build(e, (ExecutableType)e.asType(), declaringClass);
+  }
+
+  /**
+   * @param e the method
+   * @param et type of the method - as a member of the class being
+   *           described if inherited
+   * @param declaringClass qualified name of declaring class
+   * @return descriptor
+   */
+  public MethodDescriptor build(final ExecutableElement e,
+                                final ExecutableType et,
+                                final String declaringClass) {
+    final var typeNames = ps.getTypeNames();
+
+    final var pels = e.getParameters();
+    final var ptypes = et.getParameterTypes();
+    final var params = new ArrayList<ParameterDescriptor>(pels.size());
+    for (int i = 0; i < pels.size(); i++) {
+      final var ptm = ptypes.get(i);
+      params.add(new ParameterDescriptor(
+              pels.get(i).getSimpleName().toString(),
+              typeNames.get(ptm),
+              ptm.getKind(),
+              ps.classify(ptm)));
+    }
+
+    final var thrown = new ArrayList<TypeName>(
+            et.getThrownTypes().size());
+    for (final var t: et.getThrownTypes()) {
+      thrown.add(typeNames.get(t));
+    }
+
+    final var rtm = et.getReturnType();
+    final var name = e.getSimpleName().toString();
+
+    return new MethodDescriptor(name,
+                                declaringClass,
+                                ClassHandler.splitMethodName(name),
+                                typeNames.get(rtm),
+                                rtm.getKind(),
+                                ps.classify(rtm),
+                                Collections.unmodifiableList(params),
+                                Collections.unmodifiableList(thrown),
+                                Set.copyOf(e.getModifiers()));
+  }
+
+  /* seen is null if there are no inherited methods */
+  private void addMethods(final List<MethodDescriptor> methods,
+                          final Set<String> seen,
+                          final TypeElement el) {
+    final var declaringClass = el.getQualifiedName().toString();
+
+    for (final var e: ps.getMethods(el)) {
+      final var md = build(e, declaringClass);
+
+      if ((seen == null) || seen.add(md.signatureKey())) {
+        methods.add(md);
+      }
+    }
+  }
+
+  /* Inherited methods are resolved as members of el so type
+     variables of the superclasses are replaced by their arguments.
+     Overrides were dropped by getInheritedMethods. */
+  private void addMemberMethods(final List<MethodDescriptor> methods,
+                                final TypeElement el) {
+    final var types = ps.env().getTypeUtils();
+    final var declared = (DeclaredType)el.asType();
+
+    for (final var e: ps.getInheritedMethods(el)) {
+      final var owner = (TypeElement)e.getEnclosingElement();
+      final var declaringClass = owner.getQualifiedName().toString();
+
+      if (owner == el) {
+        methods.add(build(e, declaringClass));
+        continue;
+      }
+
+      methods.add(build(e,
+                        (ExecutableType)types.asMemberOf(declared, e),
+                        declaringClass));
+    }
+  }
+
+  private void addImports(final Set<String> imports,
+                          final String packageName,
+                          final TypeName tn) {
+    if (tn instanceof final TypeName.Declared d) {
+      if (!d.implicit(packageName)) {
+        imports.add(d.qualifiedName());
+      }
+      for (final var ta: d.typeArgs()) {
+        addImports(imports, packageName, ta);
+      }
+    } else if (tn instanceof final TypeName.ArrayOf a) {
+      addImports(imports, packageName, a.component());
+    } else if ((tn instanceof final TypeName.Wildcard w) &&
+            (w.bound() != null)) {
+      addImports(imports, packageName, w.bound());
+    }
+  }
+}
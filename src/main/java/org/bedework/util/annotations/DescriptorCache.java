@@ -0,0 +1,491 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
+
+/** Persistent cache of class descriptors, used for supertypes which
+ * are not compiled from source - typically those in jars - so their
+ * descriptors can be loaded without building them from the
+ * TypeElement.
+ *
+ * <p>The cache is a compact binary file under the resource path. It
+ * is read into memory on startup and entries are decoded on demand.
+ * It is rewritten by save() if anything was added. The file is not
+ * memory mapped as it could then not be replaced on all platforms.
+ *
+ * <p>Each entry has a stamp. An entry is only used if the stamp
+ * matches, so callers should derive the stamp from information
+ * which changes when the class or its ancestors change. All
+ * entries are discarded if the options digest changes.
+ *
+ * @author douglm
+ */
+public class DescriptorCache {
+  private static final int magic = 0x42574443; // "BWDC"
+  private static final int version = 2;
+
+  private static final String fileName = "bw-descriptors.bin";
+
+  private final Path path;
+
+  /* Encoded entries - read from the file or newly added */
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private String optionsDigest = "";
+
+  private boolean changed;
+
+  private long hits;
+  private long misses;
+
+  private record Entry(String stamp,
+                       ByteBuffer encoded) {
+  }
+
+  /** Loads the cache if it exists. An unreadable cache is ignored.
+   *
+   * @param resourcePath directory for the cache
+   */
+  public DescriptorCache(final String resourcePath) {
+    path = Path.of(resourcePath, fileName);
+
+    if (!Files.exists(path)) {
+      return;
+    }
+
+    try {
+      final var buf = ByteBuffer.wrap(Files.readAllBytes(path));
+
+      if ((buf.getInt() != magic) || (buf.getInt() != version)) {
+        return;
+      }
+
+      optionsDigest = getString(buf);
+
+      final int count = buf.getInt();
+      for (int i = 0; i < count; i++) {
+        final var key = getString(buf);
+        final var stamp = getString(buf);
+        final int len = buf.getInt();
+
+        final var encoded = buf.slice(buf.position(), len);
+        buf.position(buf.position() + len);
+
+        entries.put(key, new Entry(stamp, encoded));
+      }
+    } catch (final IOException | RuntimeException e) {
+      // Corrupt or unreadable - start again
+      entries.clear();
+      changed = true;
+    }
+  }
+
+  /** Discard all entries if the options have changed.
+   *
+   * @param digest of the processor options
+   */
+  public void checkOptions(final String digest) {
+    if (digest.equals(optionsDigest)) {
+      return;
+    }
+
+    entries.clear();
+    optionsDigest = digest;
+    changed = true;
+  }
+
+  /**
+   * @param qualifiedName of class
+   * @param stamp expected stamp
+   * @return descriptor or null if absent or stale
+   */
+  public ClassDescriptor get(final String qualifiedName,
+                             final String stamp) {
+    final var entry = entries.get(qualifiedName);
+    if ((entry == null) || !entry.stamp().equals(stamp)) {
+      misses++;
+      return null;
+    }
+
+    hits++;
+    return getClassDescriptor(entry.encoded().duplicate());
+  }
+
+  /**
+   * @param stamp for entry
+   * @param cd descriptor to cache
+   */
+  public void put(final String stamp,
+                  final ClassDescriptor cd) {
+    try {
+      final var bos = new ByteArrayOutputStream();
+      final var out = new DataOutputStream(bos);
+      putClassDescriptor(out, cd);
+      out.flush();
+
+      entries.put(cd.qualifiedName(),
+                  new Entry(stamp, ByteBuffer.wrap(bos.toByteArray())));
+      changed = true;
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Write the cache if it changed. Written to a temporary file
+   * which then replaces the cache.
+   */
+  public void save() {
+    if (!changed) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(path.getParent());
+      final var tmp = Files.createTempFile(path.getParent(),
+                                           fileName, ".tmp");
+
+      try (final var out = new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(magic);
+        out.writeInt(version);
+        putString(out, optionsDigest);
+        out.writeInt(entries.size());
+
+        for (final var me: entries.entrySet()) {
+          putString(out, me.getKey());
+          putString(out, me.getValue().stamp());
+
+          final var encoded = me.getValue().encoded().duplicate();
+          final var bytes = new byte[encoded.remaining()];
+          encoded.get(bytes);
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+      }
+
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+      changed = false;
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /* ==============================================================
+   *                   Encoding
+   * ============================================================== */
+
+  private static final byte tagPrimitive = 0;
+  private static final byte tagDeclared = 1;
+  private static final byte tagArray = 2;
+  private static final byte tagWildcard = 3;
+  private static final byte tagTypeVar = 4;
+  private static final byte tagOther = 5;
+
+  private static void putClassDescriptor(final DataOutputStream out,
+                                         final ClassDescriptor cd)
+          throws IOException {
+    putString(out, cd.qualifiedName());
+    putString(out, cd.packageName());
+    putString(out, cd.simpleName());
+    putTypeName(out, cd.type());
+
+    out.writeBoolean(cd.superclass() != null);
+    if (cd.superclass() != null) {
+      putTypeName(out, cd.superclass());
+    }
+
+    putModifiers(out, cd.modifiers());
+
+    out.writeInt(cd.methods().size());
+    for (final var md: cd.methods()) {
+      putMethodDescriptor(out, md);
+    }
+
+    out.writeInt(cd.imports().size());
+    for (final var imp: cd.imports()) {
+      putString(out, imp);
+    }
+  }
+
+  private static ClassDescriptor getClassDescriptor(
+          final ByteBuffer buf) {
+    final var qualifiedName = getString(buf);
+    final var packageName = getString(buf);
+    final var simpleName = getString(buf);
+    final var type = getTypeName(buf);
+
+    TypeName superclass = null;
+    if (buf.get() != 0) {
+      superclass = getTypeName(buf);
+    }
+
+    final var modifiers = getModifiers(buf);
+
+    final int nmethods = buf.getInt();
+    final var methods = new ArrayList<MethodDescriptor>(nmethods);
+    for (int i = 0; i < nmethods; i++) {
+      methods.add(getMethodDescriptor(buf));
+    }
+
+    final int nimports = buf.getInt();
+    final var imports = new ArrayList<String>(nimports);
+    for (int i = 0; i < nimports; i++) {
+      imports.add(getString(buf));
+    }
+
+    return new ClassDescriptor(qualifiedName,
+                               packageName,
+                               simpleName,
+                               type,
+                               superclass,
+                               modifiers,
+                               Collections.unmodifiableList(methods),
+                               Collections.unmodifiableList(imports));
+  }
+
+  private static void putMethodDescriptor(final DataOutputStream out,
+                                          final MethodDescriptor md)
+          throws IOException {
+    putString(out, md.name());
+    putString(out, md.declaringClass());
+
+    final var acc = md.accessor();
+    out.writeBoolean(acc != null);
+    if (acc != null) {
+      out.writeBoolean(acc.setter());
+      putString(out, acc.fieldName());
+      putString(out, acc.ucFieldName());
+      putString(out, acc.methodName());
+    }
+
+    putTypeName(out, md.returnType());
+    putString(out, md.returnKind().name());
+    putString(out, md.returnCategory().name());
+
+    out.writeInt(md.parameters().size());
+    for (final var p: md.parameters()) {
+      putString(out, p.name());
+      putTypeName(out, p.type());
+      putString(out, p.kind().name());
+      putString(out, p.category().name());
+    }
+
+    out.writeInt(md.thrownTypes().size());
+    for (final var t: md.thrownTypes()) {
+      putTypeName(out, t);
+    }
+
+    putModifiers(out, md.modifiers());
+  }
+
+  private static MethodDescriptor getMethodDescriptor(
+          final ByteBuffer buf) {
+    final var name = getString(buf);
+    final var declaringClass = getString(buf);
+
+    ClassHandler.SplitMethodName acc = null;
+    if (buf.get() != 0) {
+      final boolean setter = buf.get() != 0;
+      acc = new ClassHandler.SplitMethodName(setter,
+                                             getString(buf),
+                                             getString(buf),
+                                             getString(buf));
+    }
+
+    final var returnType = getTypeName(buf);
+    final var returnKind = TypeKind.valueOf(getString(buf));
+    final var returnCategory = TypeCategory.valueOf(getString(buf));
+
+    final int nparams = buf.getInt();
+    final var params = new ArrayList<ParameterDescriptor>(nparams);
+    for (int i = 0; i < nparams; i++) {
+      params.add(new ParameterDescriptor(
+              getString(buf),
+              getTypeName(buf),
+              TypeKind.valueOf(getString(buf)),
+              TypeCategory.valueOf(getString(buf))));
+    }
+
+    final int nthrown = buf.getInt();
+    final var thrown = new ArrayList<TypeName>(nthrown);
+    for (int i = 0; i < nthrown; i++) {
+      thrown.add(getTypeName(buf));
+    }
+
+    return new MethodDescriptor(name,
+                                declaringClass,
+                                acc,
+                                returnType,
+                                returnKind,
+                                returnCategory,
+                                Collections.unmodifiableList(params),
+                                Collections.unmodifiableList(thrown),
+                                getModifiers(buf));
+  }
+
+  private static void putTypeName(final DataOutputStream out,
+                                  final TypeName tn)
+          throws IOException {
+    if (tn instanceof final TypeName.Primitive p) {
+      out.writeByte(tagPrimitive);
+      putString(out, p.name());
+    } else if (tn instanceof final TypeName.Declared d) {
+      out.writeByte(tagDeclared);
+      putString(out, d.packageName());
+      putString(out, d.qualifiedName());
+      putString(out, d.simpleName());
+      out.writeBoolean(d.nested());
+      out.writeInt(d.typeArgs().size());
+      for (final var ta: d.typeArgs()) {
+        putTypeName(out, ta);
+      }
+    } else if (tn instanceof final TypeName.ArrayOf a) {
+      out.writeByte(tagArray);
+      putTypeName(out, a.component());
+    } else if (tn instanceof final TypeName.Wildcard w) {
+      out.writeByte(tagWildcard);
+      out.writeBoolean(w.superBound());
+      out.writeBoolean(w.bound() != null);
+      if (w.bound() != null) {
+        putTypeName(out, w.bound());
+      }
+    } else if (tn instanceof final TypeName.TypeVar tv) {
+      out.writeByte(tagTypeVar);
+      putString(out, tv.name());
+    } else {
+      out.writeByte(tagOther);
+      putString(out, ((TypeName.Other)tn).text());
+    }
+  }
+
+  private static TypeName getTypeName(final ByteBuffer buf) {
+    final byte tag = buf.get();
+
+    switch (tag) {
+      case tagPrimitive:
+        return new TypeName.Primitive(getString(buf));
+
+      case tagDeclared:
+        final var packageName = getString(buf);
+        final var qualifiedName = getString(buf);
+        final var simpleName = getString(buf);
+        final boolean nested = buf.get() != 0;
+        final int nargs = buf.getInt();
+        final List<TypeName> typeArgs;
+        if (nargs == 0) {
+          typeArgs = List.of();
+        } else {
+          final var tas = new ArrayList<TypeName>(nargs);
+          for (int i = 0; i < nargs; i++) {
+            tas.add(getTypeName(buf));
+          }
+          typeArgs = Collections.unmodifiableList(tas);
+        }
+
+        return new TypeName.Declared(packageName, qualifiedName,
+                                     simpleName, nested, typeArgs);
+
+      case tagArray:
+        return new TypeName.ArrayOf(getTypeName(buf));
+
+      case tagWildcard:
+        final boolean superBound = buf.get() != 0;
+        TypeName bound = null;
+        if (buf.get() != 0) {
+          bound = getTypeName(buf);
+        }
+
+        return new TypeName.Wildcard(bound, superBound);
+
+      case tagTypeVar:
+        return new TypeName.TypeVar(getString(buf));
+
+      case tagOther:
+        return new TypeName.Other(getString(buf));
+
+      default:
+        throw new IllegalStateException("Bad type tag " + tag);
+    }
+  }
+
+  private static void putModifiers(final DataOutputStream out,
+                                   final Set<Modifier> modifiers)
+          throws IOException {
+    out.writeInt(modifiers.size());
+    for (final var m: modifiers) {
+      putString(out, m.name());
+    }
+  }
+
+  private static Set<Modifier> getModifiers(final ByteBuffer buf) {
+    final int n = buf.getInt();
+    if (n == 0) {
+      return Set.of();
+    }
+
+    final var res = EnumSet.noneOf(Modifier.class);
+    for (int i = 0; i < n; i++) {
+      res.add(Modifier.valueOf(getString(buf)));
+    }
+
+    return Collections.unmodifiableSet(res);
+  }
+
+  private static void putString(final DataOutputStream out,
+                                final String val) throws IOException {
+    final var bytes = val.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String getString(final ByteBuffer buf) {
+    final int len = buf.getInt();
+    final var bytes = new byte[len];
+    buf.get(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
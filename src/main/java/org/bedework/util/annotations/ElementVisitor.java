@@ -1,5 +1,7 @@
 package org.bedework.util.annotations;
 
+import org.bedework.util.annotations.ProcessMetrics.Phase;
+
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
@@ -8,24 +10,37 @@ import javax.lang.model.util.SimpleElementVisitor14;
 
 import static java.lang.String.format;
 
+/** Walks a class and its members calling the ProcessState.
+ *
+ * <p>A single instance is reused for all classes - all state is
+ * held in the ProcessState so subclasses must not add any.
+ *
+ * @author douglm
+ */
 public class ElementVisitor extends
         SimpleElementVisitor14<Element, ProcessState> {
   @Override
   public Element visitType(final TypeElement el,
                            final ProcessState pstate) {
-    final String className = el.asType().toString();
-
     if (pstate.debug()) {
-      pstate.note("Start Class: " + className +
+      pstate.note("Start Class: " + el.asType() +
                           " depth: " + pstate.classDepth());
     }
 
     pstate.incClassDepth();
 
-    if ((pstate.classDepth() <= 1) &&       // In inner class
-            pstate.startClass(el)) {
-      for (final Element subEl: el.getEnclosedElements()) {
-        subEl.accept(new ElementVisitor(), pstate);
+    final var metrics = pstate.getMetrics();
+
+    boolean started = false;
+    if (pstate.classDepth() <= 1) {  // Not in inner class
+      final long t = metrics.start();
+      started = pstate.startClass(el);
+      metrics.end(Phase.START_CLASS, t);
+    }
+
+    if (started) {
+      for (final Element subEl: pstate.getEnclosedElements(el)) {
+        subEl.accept(this, pstate);
       }
     }
 
@@ -35,7 +50,7 @@ public class ElementVisitor extends
 
     if (pstate.debug()) {
       pstate.note(format("End Class: %s depth: %s",
-                         className, pstate.classDepth()));
+                         el.asType(), pstate.classDepth()));
     }
 
     if (pstate.classDepth() >= 1) {
@@ -45,16 +60,23 @@ public class ElementVisitor extends
 
     final TypeMirror superD = el.getSuperclass();
     if (pstate.shouldProcessSuperMethods(superD)) {
+      final long t = metrics.start();
       pstate.processSuperMethods(superD);
+      metrics.end(Phase.SUPER_METHODS, t);
+    }
+
+    if (started && pstate.wantDescriptors()) {
+      final var cd = pstate.getDescriptor(el);
+      pstate.processDescriptor(cd);
+      pstate.runGenerators(cd);
     }
 
+    final long t = metrics.start();
     pstate.endClass(el);
+    metrics.end(Phase.END_CLASS, t);
 
-    if (pstate.shouldProcessSuperClass(superD)) {
-      pstate.processClass(pstate.env()
-                                .getTypeUtils()
-                                .asElement(el.asType()));
-    }
+    /* Superclasses wanted as separate classes were queued ahead
+       of this one by ProcessState.processClass */
 
     return el;
   }
@@ -67,7 +89,10 @@ public class ElementVisitor extends
       return e;
     }
 
+    final var metrics = pstate.getMetrics();
+    final long t = metrics.start();
     pstate.processExecutable(e);
+    metrics.end(Phase.PROCESS_METHOD, t);
 
     return e;
   }
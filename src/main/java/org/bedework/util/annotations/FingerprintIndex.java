@@ -0,0 +1,138 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/** A simple persistent map of key to fingerprint held as a
+ * properties file under the resource path. Loaded on creation and
+ * written back by save() if anything changed.
+ *
+ * @author douglm
+ */
+public class FingerprintIndex {
+  private final Path path;
+
+  private final Properties entries = new Properties();
+
+  private boolean changed;
+
+  /**
+   * @param resourcePath directory for the index
+   * @param name of index file
+   */
+  public FingerprintIndex(final String resourcePath,
+                          final String name) {
+    path = Path.of(resourcePath, name);
+
+    if (!Files.exists(path)) {
+      return;
+    }
+
+    try (final var rdr = new FileReader(path.toFile(),
+                                        StandardCharsets.UTF_8)) {
+      entries.load(rdr);
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @param key for entry
+   * @return fingerprint or null
+   */
+  public String get(final String key) {
+    return entries.getProperty(key);
+  }
+
+  /**
+   * @param key for entry
+   * @param val new fingerprint
+   */
+  public void put(final String key, final String val) {
+    final var prev = entries.setProperty(key, val);
+    if (!val.equals(prev)) {
+      changed = true;
+    }
+  }
+
+  /**
+   * @param key for entry
+   */
+  public void remove(final String key) {
+    if (entries.remove(key) != null) {
+      changed = true;
+    }
+  }
+
+  /** Discard all entries
+   *
+   */
+  public void clear() {
+    if (!entries.isEmpty()) {
+      entries.clear();
+      changed = true;
+    }
+  }
+
+  /** Write the index if it changed
+   *
+   */
+  public void save() {
+    if (!changed) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(path.getParent());
+
+      try (final var wtr = new FileWriter(path.toFile(),
+                                          StandardCharsets.UTF_8)) {
+        entries.store(wtr, null);
+      }
+      changed = false;
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @param val to digest
+   * @return hex encoded SHA-256 digest of UTF-8 value
+   */
+  public static String digest(final CharSequence val) {
+    try {
+      final var md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(
+              md.digest(val.toString()
+                           .getBytes(StandardCharsets.UTF_8)));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import org.bedework.util.annotations.PropertyTable.Property;
+import org.bedework.util.annotations.PropertyTable.ValueKind;
+import org.bedework.util.annotations.PropertyTable.ValueType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+
+/** Emission and property selection shared by the built in
+ * SourceGenerators so the generated classes stay consistent.
+ *
+ * @author douglm
+ */
+final class GeneratorSupport {
+  /**
+   * @param included properties the generator handles - in index order
+   * @param excluded the rest - in index order
+   */
+  record Selection(List<Property> included,
+                   List<Property> excluded) {
+  }
+
+  private GeneratorSupport() {
+  }
+
+  /**
+   * @param table properties of the class
+   * @param test true for properties the generator handles
+   * @return properties split by test
+   */
+  static Selection select(final PropertyTable table,
+                          final Predicate<Property> test) {
+    final var included = new ArrayList<Property>();
+    final var excluded = new ArrayList<Property>();
+
+    for (final var p: table.properties()) {
+      if (test.test(p)) {
+        included.add(p);
+      } else {
+        excluded.add(p);
+      }
+    }
+
+    return new Selection(Collections.unmodifiableList(included),
+                         Collections.unmodifiableList(excluded));
+  }
+
+  /** Checks for properties which would make the generated source
+   * fail to compile: two properties with the same constant name and
+   * types which still contain type variables.
+   *
+   * @param table properties of the class
+   * @return null or why the class cannot be generated
+   */
+  static String conflicts(final PropertyTable table) {
+    final Map<String, String> consts = new HashMap<>();
+
+    for (final var p: table.properties()) {
+      final var prev = consts.putIfAbsent(p.constName(), p.name());
+      if (prev != null) {
+        return format("properties %s and %s have the same " +
+                              "constant name %s",
+                      prev, p.name(), p.constName());
+      }
+
+      if (hasTypeVar(p.value().type()) ||
+              ((p.setterValue() != null) &&
+                       hasTypeVar(p.setterValue().type()))) {
+        return format("property %s has a type variable in its type",
+                      p.name());
+      }
+    }
+
+    return null;
+  }
+
+  private static boolean hasTypeVar(final TypeName type) {
+    if (type instanceof TypeName.TypeVar) {
+      return true;
+    }
+
+    if (type instanceof final TypeName.ArrayOf a) {
+      return hasTypeVar(a.component());
+    }
+
+    if (type instanceof final TypeName.Wildcard w) {
+      return (w.bound() != null) && hasTypeVar(w.bound());
+    }
+
+    if (type instanceof final TypeName.Declared d) {
+      for (final var ta: d.typeArgs()) {
+        if (hasTypeVar(ta)) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @param vt type of value
+   * @return true for primitives, wrappers, String and enums
+   */
+  static boolean scalar(final ValueType vt) {
+    return vt.kind() != ValueKind.OTHER;
+  }
+
+  /**
+   * @param vt type of value
+   * @return true for a scalar or an array or collection of scalars
+   */
+  static boolean scalarOrMulti(final ValueType vt) {
+    if (scalar(vt)) {
+      return true;
+    }
+
+    return (vt.element() != null) &&
+            ((vt.category() == TypeCategory.ARRAY) ||
+                     (vt.category() == TypeCategory.COLLECTION)) &&
+            scalar(vt.element());
+  }
+
+  /** Emits the package, imports, class comment and class start.
+   *
+   * @param sb for output
+   * @param table properties of the class
+   * @param className simple name of generated class
+   * @param description for the class comment
+   * @param imports qualified names
+   */
+  static void header(final StringBuilder sb,
+                     final PropertyTable table,
+                     final String className,
+                     final String description,
+                     final String... imports) {
+    final var cd = table.cls();
+
+    if (!cd.packageName().isEmpty()) {
+      sb.append(format("package %s;\n\n", cd.packageName()));
+    }
+
+    for (final var imp: imports) {
+      sb.append(format("import %s;\n", imp));
+    }
+
+    if (imports.length > 0) {
+      sb.append('\n');
+    }
+
+    sb.append(format("""
+            /** Generated from %s - do not edit.
+             *
+             * %s
+             */
+            public final class %s {
+            """, cd.qualifiedName(), description, className));
+  }
+
+  /** Emits a comment listing properties not handled.
+   *
+   * @param sb for output
+   * @param table properties of the class
+   * @param heading e.g. "Not encoded"
+   * @param excluded properties not handled
+   */
+  static void excluded(final StringBuilder sb,
+                       final PropertyTable table,
+                       final String heading,
+                       final List<Property> excluded) {
+    if (excluded.isEmpty()) {
+      return;
+    }
+
+    sb.append(format("  /* %s:\n", heading));
+    for (final var p: excluded) {
+      sb.append(format("       %s: %s\n", p.name(),
+                       table.render(p.value().type())));
+    }
+    sb.append("   */\n\n");
+  }
+
+  /** Emits a constant holding the index of each property and an
+   * array "names" of the property names in index order.
+   *
+   * @param sb for output
+   * @param props all properties of the class
+   */
+  static void indexes(final StringBuilder sb,
+                      final List<Property> props) {
+    for (final var p: props) {
+      sb.append(format("  public static final int %s = %d;\n",
+                       p.constName(), p.index()));
+    }
+
+    sb.append("\n  private static final String[] names = {\n");
+    for (final var p: props) {
+      sb.append(format("    %s,\n", PropertyTable.literal(p.name())));
+    }
+    sb.append("  };\n\n");
+  }
+}
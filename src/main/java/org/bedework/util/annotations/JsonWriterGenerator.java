@@ -0,0 +1,580 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import org.bedework.util.annotations.PropertyTable.Property;
+import org.bedework.util.annotations.PropertyTable.ValueType;
+
+import static java.lang.String.format;
+
+/** Generates &lt;Class&gt;JsonWriter which writes the readable
+ * properties of an instance as a JSON object directly to an
+ * Appendable or an OutputStream - as UTF-8.
+ *
+ * <p>Property names are escaped when generating and held as
+ * constants - a String for Appendable and a byte[] for
+ * OutputStream. Values are escaped and encoded as they are written.
+ * Arrays and collections are iterated in place.
+ *
+ * <p>Supported types are primitives and their wrappers, String,
+ * enums - as their name - and arrays or collections of those.
+ * Anything else is listed in a comment and not written. Non-finite
+ * floating point values are written as null.
+ *
+ * <p>The writer is constructed with a flag saying whether null
+ * properties are skipped or written as null.
+ *
+ * @author douglm
+ */
+public class JsonWriterGenerator implements SourceGenerator {
+  /* How we write */
+  private enum Dialect {
+    APPENDABLE,
+    STREAM;
+
+    String outType() {
+      if (this == APPENDABLE) {
+        return "Appendable";
+      }
+
+      return "OutputStream";
+    }
+
+    String ch(final char c) {
+      if (this == APPENDABLE) {
+        return format("out.append('%s');", c);
+      }
+
+      return format("out.write('%s');", c);
+    }
+
+    String name(final Property p) {
+      if (this == APPENDABLE) {
+        return format("out.append(%s_NAME);", p.constName());
+      }
+
+      return format("out.write(%s_BYTES);", p.constName());
+    }
+
+    String nul() {
+      if (this == APPENDABLE) {
+        return "out.append(\"null\");";
+      }
+
+      return "out.write(NULL);";
+    }
+
+    String bool(final String val) {
+      if (this == APPENDABLE) {
+        return format("out.append(%s ? \"true\" : \"false\");", val);
+      }
+
+      return format("out.write(%s ? TRUE : FALSE);", val);
+    }
+  }
+
+  /* Is there a preceding property in the output? */
+  private enum Written {
+    NO,
+    YES,
+
+    /* Only known at run time - held in "more" */
+    MAYBE
+  }
+
+  /* Per class state while generating */
+  private static class Gen {
+    final PropertyTable table;
+    final StringBuilder sb = new StringBuilder(8192);
+
+    boolean strings;
+    boolean longs;
+    boolean floats;
+    boolean doubles;
+
+    Gen(final PropertyTable table) {
+      this.table = table;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "json";
+  }
+
+  @Override
+  public String conflicts(final PropertyTable table) {
+    return GeneratorSupport.conflicts(table);
+  }
+
+  @Override
+  public String outFileName(final PropertyTable table) {
+    return table.generatedName("JsonWriter");
+  }
+
+  @Override
+  public CharSequence generate(final PropertyTable table) {
+    final var g = new Gen(table);
+    final var className = table.cls().simpleName() + "JsonWriter";
+    final var entityType = table.entityType();
+
+    final var sel = GeneratorSupport.select(
+            table,
+            p -> p.readable() &&
+                    GeneratorSupport.scalarOrMulti(p.value()));
+    final var written = sel.included();
+
+    final var sb = g.sb;
+
+    GeneratorSupport.header(sb, table, className,
+                            "Writes the properties as a JSON object.",
+                            "java.io.IOException",
+                            "java.io.OutputStream",
+                            "java.nio.charset.StandardCharsets");
+    GeneratorSupport.excluded(sb, table, "Not written", sel.excluded());
+
+    for (final var p: written) {
+      sb.append(format("""
+                private static final String %1$s_NAME = %2$s;
+                private static final byte[] %1$s_BYTES =
+                        %1$s_NAME.getBytes(StandardCharsets.UTF_8);
+              """, p.constName(),
+                       PropertyTable.literal(jsonString(p.name()) + ":")));
+    }
+
+    sb.append(format("""
+
+              private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+              private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+              private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+              private final boolean skipNulls;
+
+              /**
+               * @param skipNulls true to omit null properties - false
+               *                  to write them as null
+               */
+              public %s(final boolean skipNulls) {
+                this.skipNulls = skipNulls;
+              }
+            """, className));
+
+    for (final var d: Dialect.values()) {
+      sb.append(format("""
+
+                /**
+                 * @param entity to write
+                 * @param out destination
+                 * @throws IOException on write error
+                 */
+                public void write(final %s entity,
+                                  final %s out) throws IOException {
+                  %s
+              """, entityType, d.outType(), d.ch('{')));
+
+      if (!written.isEmpty() && !written.get(0).value().isPrimitive()) {
+        sb.append("    boolean more = false;\n");
+      }
+
+      var state = Written.NO;
+      for (final var p: written) {
+        state = writeProperty(g, d, p, state);
+      }
+
+      sb.append(format("    %s\n  }\n", d.ch('}')));
+    }
+
+    if (g.strings) {
+      stringMethods(sb);
+    }
+
+    if (g.longs || g.floats || g.doubles) {
+      numberMethods(g);
+    }
+
+    if (g.strings || g.longs || g.floats || g.doubles) {
+      sb.append("""
+
+                private static void writeAscii(final OutputStream out,
+                                               final String s)
+                        throws IOException {
+                  final int len = s.length();
+                  for (int i = 0; i < len; i++) {
+                    out.write(s.charAt(i));
+                  }
+                }
+              """);
+    }
+
+    sb.append("}\n");
+
+    return sb;
+  }
+
+  /* Returns the state after this property */
+  private static Written writeProperty(final Gen g,
+                                       final Dialect d,
+                                       final Property p,
+                                       final Written state) {
+    final var sb = g.sb;
+    final var vt = p.value();
+    final var getter = format("entity.%s()", p.getter().name());
+
+    sb.append(format("\n    // %s\n", p.name()));
+
+    if (vt.isPrimitive()) {
+      separator(sb, d, state, "    ");
+      sb.append(format("    %s\n", d.name(p)));
+      writeScalar(g, d, vt, getter, "    ");
+
+      return Written.YES;
+    }
+
+    sb.append(format("    {\n      final %s v = %s;\n",
+                     g.table.render(vt.type()), getter));
+    sb.append("      if ((v != null) || !skipNulls) {\n");
+
+    separator(sb, d, state, "        ");
+    if (state != Written.YES) {
+      sb.append("        more = true;\n");
+    }
+    sb.append(format("        %s\n", d.name(p)));
+
+    if (GeneratorSupport.scalar(vt)) {
+      writeScalar(g, d, vt, "v", "        ");
+    } else {
+      writeMulti(g, d, vt, "        ");
+    }
+
+    sb.append("      }\n    }\n");
+
+    if (state == Written.YES) {
+      return state;
+    }
+
+    return Written.MAYBE;
+  }
+
+  private static void separator(final StringBuilder sb,
+                                final Dialect d,
+                                final Written state,
+                                final String indent) {
+    switch (state) {
+      case YES -> sb.append(format("%s%s\n", indent, d.ch(',')));
+      case MAYBE -> sb.append(format("%sif (more) {\n%s  %s\n%1$s}\n",
+                                     indent, indent, d.ch(',')));
+      default -> {
+      }
+    }
+  }
+
+  /* Array or collection in variable v - may be null */
+  private static void writeMulti(final Gen g,
+                                 final Dialect d,
+                                 final ValueType vt,
+                                 final String indent) {
+    final var sb = g.sb;
+
+    sb.append(format("%sif (v == null) {\n", indent));
+    sb.append(format("%s  %s\n", indent, d.nul()));
+    sb.append(format("%s} else {\n", indent));
+    sb.append(format("%s  %s\n", indent, d.ch('[')));
+    sb.append(format("%s  boolean next = false;\n", indent));
+    sb.append(format("%s  for (final %s el: v) {\n", indent,
+                     g.table.render(vt.element().type())));
+    sb.append(format("%s    if (next) {\n", indent));
+    sb.append(format("%s      %s\n", indent, d.ch(',')));
+    sb.append(format("%s    }\n", indent));
+    sb.append(format("%s    next = true;\n", indent));
+    writeScalar(g, d, vt.element(), "el", indent + "    ");
+    sb.append(format("%s  }\n", indent));
+    sb.append(format("%s  %s\n", indent, d.ch(']')));
+    sb.append(format("%s}\n", indent));
+  }
+
+  /* expr is a variable unless the value is primitive */
+  private static void writeScalar(final Gen g,
+                                  final Dialect d,
+                                  final ValueType vt,
+                                  final String expr,
+                                  final String indent) {
+    final var sb = g.sb;
+
+    switch (vt.kind()) {
+      case STRING -> {
+        g.strings = true;
+        sb.append(format("%swriteString(out, %s);\n", indent, expr));
+        return;
+      }
+      case ENUM -> {
+        g.strings = true;
+        sb.append(format(
+                "%swriteString(out, (%2$s == null) ? null : %2$s.name());\n",
+                indent, expr));
+        return;
+      }
+      default -> {
+      }
+    }
+
+    final String ind;
+    if (vt.isPrimitive()) {
+      ind = indent;
+    } else {
+      // Boxed
+      sb.append(format("%sif (%s == null) {\n", indent, expr));
+      sb.append(format("%s  %s\n", indent, d.nul()));
+      sb.append(format("%s} else {\n", indent));
+      ind = indent + "  ";
+    }
+
+    sb.append(ind);
+    switch (vt.kind()) {
+      case BOOLEAN -> sb.append(d.bool(expr));
+      case CHAR -> {
+        g.strings = true;
+        sb.append(format("writeString(out, String.valueOf(%s));", expr));
+      }
+      case FLOAT -> {
+        g.floats = true;
+        sb.append(format("writeFloat(out, %s);", expr));
+      }
+      case DOUBLE -> {
+        g.doubles = true;
+        sb.append(format("writeDouble(out, %s);", expr));
+      }
+      default -> {
+        g.longs = true;
+        sb.append(format("writeLong(out, %s);", expr));
+      }
+    }
+    sb.append('\n');
+
+    if (!vt.isPrimitive()) {
+      sb.append(format("%s}\n", indent));
+    }
+  }
+
+  /* name as the content of a JSON string - identifiers may contain
+     ignorable control characters */
+  private static String jsonString(final String val) {
+    final var sb = new StringBuilder(val.length() + 2).append('"');
+
+    for (int i = 0; i < val.length(); i++) {
+      final char c = val.charAt(i);
+      if (c < 0x20) {
+        sb.append(format("\\u%04x", (int)c));
+      } else {
+        sb.append(c);
+      }
+    }
+
+    return sb.append('"').toString();
+  }
+
+  /* Strings are escaped and - for OutputStream - UTF-8 encoded a
+     char at a time so need no intermediate copy. */
+  private static void stringMethods(final StringBuilder sb) {
+    sb.append("""
+
+              /* Escapes for control characters */
+              private static final String[] controls = new String[0x20];
+
+              static {
+                for (int i = 0; i < controls.length; i++) {
+                  controls[i] = String.format("\\\\u%04x", i);
+                }
+
+                controls['\\b'] = "\\\\b";
+                controls['\\f'] = "\\\\f";
+                controls['\\n'] = "\\\\n";
+                controls['\\r'] = "\\\\r";
+                controls['\\t'] = "\\\\t";
+              }
+
+              private static void writeString(final Appendable out,
+                                              final String s)
+                      throws IOException {
+                if (s == null) {
+                  out.append("null");
+                  return;
+                }
+
+                out.append('"');
+
+                final int len = s.length();
+                int start = 0;
+                for (int i = 0; i < len; i++) {
+                  final char c = s.charAt(i);
+                  if ((c >= 0x20) && (c != '"') && (c != '\\\\') &&
+                          !Character.isSurrogate(c)) {
+                    continue;
+                  }
+
+                  if (Character.isHighSurrogate(c) &&
+                          ((i + 1) < len) &&
+                          Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                    continue;
+                  }
+
+                  out.append(s, start, i);
+                  if (c < 0x20) {
+                    out.append(controls[c]);
+                  } else if (Character.isSurrogate(c)) {
+                    // Unpaired - escaped as for OutputStream
+                    out.append("\\\\u").append(Integer.toHexString(c));
+                  } else {
+                    out.append('\\\\').append(c);
+                  }
+                  start = i + 1;
+                }
+
+                out.append(s, start, len);
+                out.append('"');
+              }
+
+              private static void writeString(final OutputStream out,
+                                              final String s)
+                      throws IOException {
+                if (s == null) {
+                  out.write(NULL);
+                  return;
+                }
+
+                out.write('"');
+
+                final int len = s.length();
+                for (int i = 0; i < len; i++) {
+                  final char c = s.charAt(i);
+                  if (c < 0x20) {
+                    writeAscii(out, controls[c]);
+                  } else if ((c == '"') || (c == '\\\\')) {
+                    out.write('\\\\');
+                    out.write(c);
+                  } else if (c < 0x80) {
+                    out.write(c);
+                  } else if (c < 0x800) {
+                    out.write(0xc0 | (c >> 6));
+                    out.write(0x80 | (c & 0x3f));
+                  } else if (Character.isHighSurrogate(c) &&
+                          ((i + 1) < len) &&
+                          Character.isLowSurrogate(s.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, s.charAt(i + 1));
+                    i++;
+                    out.write(0xf0 | (cp >> 18));
+                    out.write(0x80 | ((cp >> 12) & 0x3f));
+                    out.write(0x80 | ((cp >> 6) & 0x3f));
+                    out.write(0x80 | (cp & 0x3f));
+                  } else if (Character.isSurrogate(c)) {
+                    // Unpaired - not valid UTF-8
+                    writeAscii(out, "\\\\u" + Integer.toHexString(c));
+                  } else {
+                    out.write(0xe0 | (c >> 12));
+                    out.write(0x80 | ((c >> 6) & 0x3f));
+                    out.write(0x80 | (c & 0x3f));
+                  }
+                }
+
+                out.write('"');
+              }
+            """);
+  }
+
+  /* A StringBuilder is appended to directly. Integers are written
+     to an OutputStream a digit at a time. */
+  private static void numberMethods(final Gen g) {
+    final var sb = g.sb;
+
+    if (g.longs) {
+      sb.append("""
+
+                private static void writeLong(final Appendable out,
+                                              final long v)
+                        throws IOException {
+                  if (out instanceof final StringBuilder sb) {
+                    sb.append(v);
+                  } else {
+                    out.append(Long.toString(v));
+                  }
+                }
+
+                private static void writeLong(final OutputStream out,
+                                              final long v)
+                        throws IOException {
+                  if (v == Long.MIN_VALUE) {
+                    writeAscii(out, "-9223372036854775808");
+                    return;
+                  }
+
+                  long val = v;
+                  if (val < 0) {
+                    out.write('-');
+                    val = -val;
+                  }
+
+                  long div = 1;
+                  while ((val / div) >= 10) {
+                    div *= 10;
+                  }
+
+                  while (div > 0) {
+                    out.write((int)('0' + ((val / div) % 10)));
+                    div /= 10;
+                  }
+                }
+              """);
+    }
+
+    if (g.floats) {
+      floatMethods(sb, "float", "Float");
+    }
+
+    if (g.doubles) {
+      floatMethods(sb, "double", "Double");
+    }
+  }
+
+  private static void floatMethods(final StringBuilder sb,
+                                   final String type,
+                                   final String boxed) {
+    sb.append(format("""
+
+              private static void write%2$s(final Appendable out, final %1$s v)
+                      throws IOException {
+                if (!%2$s.isFinite(v)) {
+                  out.append("null");
+                } else if (out instanceof final StringBuilder sb) {
+                  sb.append(v);
+                } else {
+                  out.append(%2$s.toString(v));
+                }
+              }
+
+              private static void write%2$s(final OutputStream out, final %1$s v)
+                      throws IOException {
+                if (!%2$s.isFinite(v)) {
+                  out.write(NULL);
+                } else {
+                  writeAscii(out, %2$s.toString(v));
+                }
+              }
+            """, type, boxed));
+  }
+}
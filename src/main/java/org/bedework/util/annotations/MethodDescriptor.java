@@ -0,0 +1,93 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
+
+/** Immutable description of a method - see ClassDescriptor.
+ *
+ * @param name of method
+ * @param declaringClass qualified name of class declaring the method
+ * @param accessor split name for getters and setters - else null
+ * @param returnType return type
+ * @param returnKind kind of return type
+ * @param returnCategory category of return type
+ * @param parameters possibly empty
+ * @param thrownTypes possibly empty
+ * @param modifiers of method
+ */
+public record MethodDescriptor(String name,
+                               String declaringClass,
+                               ClassHandler.SplitMethodName accessor,
+                               TypeName returnType,
+                               TypeKind returnKind,
+                               TypeCategory returnCategory,
+                               List<ParameterDescriptor> parameters,
+                               List<TypeName> thrownTypes,
+                               Set<Modifier> modifiers)
+        implements Serializable {
+  /**
+   * @return true for a getter with no parameters
+   */
+  public boolean isGetter() {
+    return (accessor != null) && !accessor.setter() &&
+            parameters.isEmpty() &&
+            (returnKind != TypeKind.VOID);
+  }
+
+  /**
+   * @return true for a setter with one parameter
+   */
+  public boolean isSetter() {
+    return (accessor != null) && accessor.setter() &&
+            (parameters.size() == 1);
+  }
+
+  /** Used when neither class is generic, so an override has the
+   * same parameter types or their erasures.
+   *
+   * @return name and erased parameter types - identifies an override
+   */
+  public String signatureKey() {
+    final var sb = new StringBuilder(name).append('(');
+    for (final var p: parameters) {
+      erased(sb, p.type());
+      sb.append(',');
+    }
+
+    return sb.append(')').toString();
+  }
+
+  private static void erased(final StringBuilder sb,
+                             final TypeName type) {
+    if (type instanceof final TypeName.Declared d) {
+      sb.append(d.qualifiedName());
+    } else if (type instanceof final TypeName.ArrayOf a) {
+      erased(sb, a.component());
+      sb.append("[]");
+    } else {
+      type.render(sb, d -> false);
+    }
+  }
+}
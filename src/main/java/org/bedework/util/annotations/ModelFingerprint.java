@@ -0,0 +1,142 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/** Computes a fingerprint of the structure of a class as seen by
+ * the processor: the class and its superclass chain, their
+ * modifiers, annotations and members. The kind and supertypes of
+ * types referenced by fields and methods are included, as they
+ * decide how a property is classified, e.g. as an enum or a
+ * collection. Types in java packages are assumed not to change.
+ * If the fingerprint is unchanged the generated output should be
+ * the same.
+ *
+ * @author douglm
+ */
+public class ModelFingerprint {
+  private ModelFingerprint() {
+  }
+
+  /**
+   * @param el class element
+   * @return hex encoded fingerprint
+   */
+  public static String compute(final TypeElement el) {
+    final var sb = new StringBuilder();
+    final Set<TypeElement> referenced = new HashSet<>();
+
+    TypeElement te = el;
+    while (te != null) {
+      appendType(sb, te, referenced);
+
+      te = superElement(te.getSuperclass());
+    }
+
+    return FingerprintIndex.digest(sb);
+  }
+
+  private static void appendType(final StringBuilder sb,
+                                 final TypeElement te,
+                                 final Set<TypeElement> referenced) {
+    sb.append(te.getQualifiedName())
+      .append('|').append(te.getModifiers())
+      .append('|').append(te.getAnnotationMirrors())
+      .append('|').append(te.getSuperclass())
+      .append('|').append(te.getInterfaces())
+      .append('\n');
+
+    for (final Element subEl: te.getEnclosedElements()) {
+      sb.append(subEl.getKind())
+        .append('|').append(subEl.getModifiers())
+        .append('|').append(subEl.getAnnotationMirrors())
+        .append('|').append(subEl)
+        .append('|').append(subEl.asType())
+        .append('\n');
+
+      if (subEl instanceof final ExecutableElement ee) {
+        appendReferenced(sb, ee.getReturnType(), referenced);
+        for (final var p: ee.getParameters()) {
+          appendReferenced(sb, p.asType(), referenced);
+        }
+      } else {
+        appendReferenced(sb, subEl.asType(), referenced);
+      }
+    }
+  }
+
+  /* Kind and supertypes of a referenced type, its type arguments
+     and their supertypes - each once. */
+  private static void appendReferenced(final StringBuilder sb,
+                                       final TypeMirror tm,
+                                       final Set<TypeElement> referenced) {
+    if (tm instanceof final ArrayType at) {
+      appendReferenced(sb, at.getComponentType(), referenced);
+      return;
+    }
+
+    if (!(tm instanceof final DeclaredType dt)) {
+      return;
+    }
+
+    for (final var ta: dt.getTypeArguments()) {
+      appendReferenced(sb, ta, referenced);
+    }
+
+    final var te = (TypeElement)dt.asElement();
+    if (te.getQualifiedName().toString().startsWith("java.") ||
+            !referenced.add(te)) {
+      return;
+    }
+
+    sb.append("ref|").append(te.getQualifiedName())
+      .append('|').append(te.getKind())
+      .append('|').append(te.getSuperclass())
+      .append('|').append(te.getInterfaces())
+      .append('\n');
+
+    appendReferenced(sb, te.getSuperclass(), referenced);
+    for (final var itf: te.getInterfaces()) {
+      appendReferenced(sb, itf, referenced);
+    }
+  }
+
+  private static TypeElement superElement(final TypeMirror tm) {
+    if (tm.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    final var te = (TypeElement)((DeclaredType)tm).asElement();
+    if ("java.lang.Object".contentEquals(te.getQualifiedName())) {
+      return null;
+    }
+
+    return te;
+  }
+}
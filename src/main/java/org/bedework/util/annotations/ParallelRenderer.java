@@ -0,0 +1,121 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.lang.model.element.TypeElement;
+
+/** Renders class snapshots on a ForkJoin pool. Results are
+ * committed on the compiler thread in the order the snapshots were
+ * submitted so output does not depend on scheduling.
+ *
+ * @author douglm
+ */
+public class ParallelRenderer {
+  private final ProcessState ps;
+
+  private final int parallelism;
+
+  private ForkJoinPool pool;
+
+  private record Pending(TypeElement el,
+                         String fingerprint,
+                         Future<List<GeneratedSource>> result) {
+  }
+
+  private final List<Pending> pending = new ArrayList<>();
+
+  /**
+   * @param ps the processing state
+   * @param parallelism number of threads
+   */
+  public ParallelRenderer(final ProcessState ps,
+                          final int parallelism) {
+    this.ps = ps;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * @param el the class the snapshot was taken from
+   * @param fingerprint model fingerprint or null
+   * @param snapshot to render
+   */
+  public void submit(final TypeElement el,
+                     final String fingerprint,
+                     final ClassSnapshot snapshot) {
+    if (pool == null) {
+      pool = new ForkJoinPool(parallelism);
+    }
+
+    pending.add(new Pending(el, fingerprint,
+                            pool.submit(snapshot::render)));
+  }
+
+  /** Wait for all submitted snapshots and write the results. Must
+   * be called on the compiler thread.
+   */
+  public void commit() {
+    try {
+      for (final var p: pending) {
+        final List<GeneratedSource> sources;
+
+        try {
+          sources = p.result().get();
+        } catch (final ExecutionException ee) {
+          ps.error("Failed to render " + p.el().getQualifiedName() +
+                           ": " + ee.getCause());
+          continue;
+        } catch (final InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(ie);
+        }
+
+        for (final var src: sources) {
+          ps.recordGenerated(src.outFileName(), p.el());
+          ps.recordBufferSize(src.content().length());
+          ps.getSourceWriter().write(src.outFileName(),
+                                     src.content(),
+                                     p.el());
+        }
+
+        if (p.fingerprint() != null) {
+          ps.updateModelIndex(p.el().getQualifiedName().toString(),
+                              p.fingerprint());
+        }
+      }
+    } finally {
+      pending.clear();
+    }
+  }
+
+  /** Shut down the pool
+   *
+   */
+  public void close() {
+    if (pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.Serializable;
+
+import javax.lang.model.type.TypeKind;
+
+/** A method parameter - see MethodDescriptor.
+ *
+ * @param name of parameter
+ * @param type of parameter
+ * @param kind of type
+ * @param category of type
+ */
+public record ParameterDescriptor(String name,
+                                  TypeName type,
+                                  TypeKind kind,
+                                  TypeCategory category)
+        implements Serializable {
+}
@@ -0,0 +1,205 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+/** Removes or replaces registered prefixes of qualified names in a
+ * single pass over the input, e.g. "java.util.Set<java.lang.String>"
+ * becomes "Set<String>".
+ *
+ * <p>Prefixes are held in a trie and only matched at the start of a
+ * name, so the cost is linear in the length of the input whatever
+ * the number of rules. Where prefixes overlap the longest wins.
+ *
+ * @author douglm
+ */
+public class PrefixStripper {
+  /* Only ascii characters may appear in prefixes */
+  private static final int maxChar = 128;
+
+  private static class Node {
+    private Node[] next;
+
+    /* Non-null if a prefix ends here */
+    private String replacement;
+
+    Node child(final char ch) {
+      if ((next == null) || (ch >= maxChar)) {
+        return null;
+      }
+
+      return next[ch];
+    }
+
+    Node addChild(final char ch) {
+      if (next == null) {
+        next = new Node[maxChar];
+      }
+
+      var n = next[ch];
+      if (n == null) {
+        n = new Node();
+        next[ch] = n;
+      }
+
+      return n;
+    }
+  }
+
+  private final Node root = new Node();
+
+  /**
+   * @return a new stripper removing "java.util." and "java.lang."
+   */
+  public static PrefixStripper withDefaults() {
+    return new PrefixStripper().add("java.util.")
+                               .add("java.lang.");
+  }
+
+  /** Register a prefix to be removed
+   *
+   * @param prefix to remove
+   * @return this
+   */
+  public PrefixStripper add(final String prefix) {
+    return add(prefix, "");
+  }
+
+  /** Register a prefix to be replaced
+   *
+   * @param prefix to replace
+   * @param replacement for prefix
+   * @return this
+   * @throws IllegalArgumentException for an empty or non-ascii prefix
+   */
+  public PrefixStripper add(final String prefix,
+                            final String replacement) {
+    if ((prefix == null) || prefix.isEmpty()) {
+      throw new IllegalArgumentException("Empty prefix");
+    }
+
+    var n = root;
+    for (int i = 0; i < prefix.length(); i++) {
+      final char ch = prefix.charAt(i);
+      if (ch >= maxChar) {
+        throw new IllegalArgumentException(
+                "Non-ascii prefix: " + prefix);
+      }
+      n = n.addChild(ch);
+    }
+
+    n.replacement = replacement;
+
+    return this;
+  }
+
+  /** Register prefixes from a specification of the form
+   * "prefix[=replacement],..."
+   *
+   * @param spec comma separated rules
+   * @return this
+   */
+  public PrefixStripper addAll(final String spec) {
+    for (final var rule: spec.split(",")) {
+      final var r = rule.trim();
+      if (r.isEmpty()) {
+        continue;
+      }
+
+      final int pos = r.indexOf('=');
+      if (pos < 0) {
+        add(r);
+      } else {
+        add(r.substring(0, pos), r.substring(pos + 1));
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * @param str to process - may be null
+   * @return str with prefixes removed or replaced. The same object
+   *         if nothing matched.
+   */
+  public String strip(final String str) {
+    if (str == null) {
+      return null;
+    }
+
+    StringBuilder sb = null;
+    final int len = str.length();
+    int i = 0;
+    int copied = 0; // str[copied, i) not yet appended
+
+    while (i < len) {
+      if ((i > 0) && nameChar(str.charAt(i - 1))) {
+        // Not at the start of a name
+        i++;
+        continue;
+      }
+
+      /* Find the longest prefix starting at i */
+      var n = root;
+      int matchEnd = -1;
+      String replacement = null;
+
+      for (int j = i; j < len; j++) {
+        n = n.child(str.charAt(j));
+        if (n == null) {
+          break;
+        }
+
+        if (n.replacement != null) {
+          matchEnd = j + 1;
+          replacement = n.replacement;
+        }
+      }
+
+      if (matchEnd < 0) {
+        i++;
+        continue;
+      }
+
+      if (sb == null) {
+        sb = new StringBuilder(len);
+      }
+
+      sb.append(str, copied, i).append(replacement);
+      i = matchEnd;
+      copied = matchEnd;
+
+      // Skip the rest of this name
+      while ((i < len) && nameChar(str.charAt(i))) {
+        i++;
+      }
+    }
+
+    if (sb == null) {
+      return str;
+    }
+
+    sb.append(str, copied, len);
+
+    return sb.toString();
+  }
+
+  private static boolean nameChar(final char ch) {
+    return (ch == '.') || Character.isJavaIdentifierPart(ch);
+  }
+}
@@ -0,0 +1,450 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/** Time spent in each phase of processing - per round and per
+ * class - and the amount of output generated. Only collected when
+ * enabled - otherwise the calls are close to free.
+ *
+ * <p>Usage is
+ * <pre>
+ *   final long t = metrics.start();
+ *   ... work ...
+ *   metrics.end(Phase.END_CLASS, t);
+ * </pre>
+ *
+ * @author douglm
+ */
+public class ProcessMetrics {
+  /** What we time */
+  public enum Phase {
+    /** ProcessState.startClass */
+    START_CLASS("startClass"),
+
+    /** ProcessState.processExecutable for the class's own members */
+    PROCESS_METHOD("processMethod"),
+
+    /** ProcessState.processSuperMethods */
+    SUPER_METHODS("processSuperMethods"),
+
+    /** ProcessState.endClass - includes ClassHandler.end() and
+     * any write done by closing the handler */
+    END_CLASS("endClass"),
+
+    /** Writing generated files through the Filer */
+    WRITE("write");
+
+    private final String label;
+
+    Phase(final String label) {
+      this.label = label;
+    }
+
+    /**
+     * @return name used in the summary and report
+     */
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private static final int numPhases = Phase.values().length;
+
+  private boolean enabled;
+
+  private final long[] totals = new long[numPhases];
+
+  private final List<long[]> rounds = new ArrayList<>();
+
+  private final List<Integer> roundClasses = new ArrayList<>();
+
+  private final Map<String, long[]> classes = new LinkedHashMap<>();
+
+  private long[] currentRound;
+
+  private long[] currentClass;
+
+  private long bytesGenerated;
+
+  private int filesGenerated;
+
+  /**
+   * @param val true to collect metrics
+   */
+  public void setEnabled(final boolean val) {
+    enabled = val;
+  }
+
+  /**
+   * @return true if collecting metrics
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Called at the start of each round
+   *
+   */
+  public void startRound() {
+    if (!enabled) {
+      return;
+    }
+
+    currentRound = new long[numPhases];
+    rounds.add(currentRound);
+    roundClasses.add(0);
+  }
+
+  /** Following times are also attributed to this class
+   *
+   * @param qname qualified name of class
+   */
+  public void beginClass(final String qname) {
+    if (!enabled) {
+      return;
+    }
+
+    currentClass = classes.computeIfAbsent(qname,
+                                           k -> new long[numPhases]);
+    if (!roundClasses.isEmpty()) {
+      final int last = roundClasses.size() - 1;
+      roundClasses.set(last, roundClasses.get(last) + 1);
+    }
+  }
+
+  /** Stop attributing times to the class
+   *
+   */
+  public void endClass() {
+    currentClass = null;
+  }
+
+  /**
+   * @return start time to pass to end() - 0 if not enabled
+   */
+  public long start() {
+    if (!enabled) {
+      return 0;
+    }
+
+    return System.nanoTime();
+  }
+
+  /** Add the time since start to the phase
+   *
+   * @param phase being timed
+   * @param start value returned by start()
+   */
+  public void end(final Phase phase,
+                  final long start) {
+    if (!enabled) {
+      return;
+    }
+
+    add(phase, System.nanoTime() - start, currentClass);
+  }
+
+  /** Add the time since start to the phase for the named class
+   *
+   * @param phase being timed
+   * @param start value returned by start()
+   * @param qname qualified name of class or null
+   */
+  public void end(final Phase phase,
+                  final long start,
+                  final String qname) {
+    if (!enabled) {
+      return;
+    }
+
+    final long[] cls;
+    if (qname == null) {
+      cls = currentClass;
+    } else {
+      cls = classes.computeIfAbsent(qname, k -> new long[numPhases]);
+    }
+
+    add(phase, System.nanoTime() - start, cls);
+  }
+
+  /**
+   * @param content of a generated file
+   */
+  public void addGenerated(final CharSequence content) {
+    if (!enabled) {
+      return;
+    }
+
+    filesGenerated++;
+    bytesGenerated += utf8Length(content);
+  }
+
+  /** For files written in parts - after addGenerated for the first.
+   *
+   * @param content more content of the file
+   */
+  public void addBytes(final CharSequence content) {
+    if (!enabled) {
+      return;
+    }
+
+    bytesGenerated += utf8Length(content);
+  }
+
+  /**
+   * @return UTF-8 bytes of generated content
+   */
+  public long getBytesGenerated() {
+    return bytesGenerated;
+  }
+
+  /**
+   * @param phase wanted
+   * @return total nanoseconds for the phase
+   */
+  public long getTotal(final Phase phase) {
+    return totals[phase.ordinal()];
+  }
+
+  /** Emit a summary as notes
+   *
+   * @param ps the processing state
+   */
+  public void summary(final ProcessState ps) {
+    if (!enabled) {
+      return;
+    }
+
+    final var sb = new StringBuilder("Processing times (ms):");
+    for (final var phase: Phase.values()) {
+      sb.append(' ')
+        .append(phase.getLabel())
+        .append(' ')
+        .append(millis(totals[phase.ordinal()]));
+    }
+    ps.info(sb::toString);
+
+    ps.info(() -> format("Rounds %d, classes %d, files %d, " +
+                                 "bytes generated %d",
+                         rounds.size(), classes.size(),
+                         filesGenerated, bytesGenerated));
+
+    String slowest = null;
+    long slowestTime = -1;
+    for (final var ent: classes.entrySet()) {
+      final long t = sum(ent.getValue());
+      if (t > slowestTime) {
+        slowestTime = t;
+        slowest = ent.getKey();
+      }
+    }
+
+    if (slowest != null) {
+      final var cls = slowest;
+      final var time = slowestTime;
+      ps.info(() -> format("Slowest class: %s %s ms",
+                           cls, millis(time)));
+    }
+  }
+
+  /** Write the metrics as JSON
+   *
+   * @param path of report file
+   * @param ps the processing state - for cache statistics
+   */
+  public void writeReport(final Path path,
+                          final ProcessState ps) {
+    if (!enabled) {
+      return;
+    }
+
+    final var sb = new StringBuilder(4096);
+
+    sb.append("{\n  \"totals\": ");
+    phases(sb, totals);
+
+    sb.append(",\n  \"bytesGenerated\": ").append(bytesGenerated);
+    sb.append(",\n  \"filesGenerated\": ").append(filesGenerated);
+    sb.append(",\n  \"filesWritten\": ")
+      .append(ps.getSourceWriter().getWritten());
+    sb.append(",\n  \"filesUnchanged\": ")
+      .append(ps.getUnchangedSkipped());
+    sb.append(",\n  \"upToDateSkipped\": ")
+      .append(ps.getUpToDateSkipped());
+    sb.append(",\n  \"duplicatesSkipped\": ")
+      .append(ps.getDuplicatesSkipped());
+
+    sb.append(",\n  \"caches\": {");
+    cache(sb, "type", ps.getCacheHits(), ps.getCacheMisses());
+    sb.append(',');
+    cache(sb, "render", ps.getRenderCache().getHits(),
+          ps.getRenderCache().getMisses());
+    sb.append(',');
+    cache(sb, "template", TemplateCache.getHits(),
+          TemplateCache.getMisses());
+
+    final var dc = ps.getDescriptorCache();
+    if (dc != null) {
+      sb.append(',');
+      cache(sb, "descriptor", dc.getHits(), dc.getMisses());
+    }
+    sb.append("\n  }");
+
+    sb.append(",\n  \"rounds\": [");
+    for (int i = 0; i < rounds.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append("\n    {\"round\": ").append(i + 1)
+        .append(", \"classes\": ").append(roundClasses.get(i))
+        .append(", \"nanos\": ");
+      phases(sb, rounds.get(i));
+      sb.append('}');
+    }
+    sb.append("\n  ]");
+
+    sb.append(",\n  \"classes\": {");
+    var first = true;
+    for (final var ent: classes.entrySet()) {
+      if (!first) {
+        sb.append(',');
+      }
+      first = false;
+      sb.append("\n    ");
+      string(sb, ent.getKey());
+      sb.append(": ");
+      phases(sb, ent.getValue());
+    }
+    sb.append("\n  }\n}\n");
+
+    try {
+      Files.createDirectories(path.getParent());
+      Files.writeString(path, sb, StandardCharsets.UTF_8);
+    } catch (final IOException e) {
+      ps.warn("Unable to write metrics report " + path +
+                      ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * @param val characters
+   * @return number of bytes when encoded as UTF-8
+   */
+  public static long utf8Length(final CharSequence val) {
+    final int len = val.length();
+    long res = len;
+
+    for (int i = 0; i < len; i++) {
+      final char c = val.charAt(i);
+      if (c < 0x80) {
+        continue;
+      }
+
+      if (c < 0x800) {
+        res++;
+      } else if (Character.isHighSurrogate(c) && (i + 1 < len) &&
+              Character.isLowSurrogate(val.charAt(i + 1))) {
+        // 4 bytes for the pair
+        res += 2;
+        i++;
+      } else {
+        res += 2;
+      }
+    }
+
+    return res;
+  }
+
+  private void add(final Phase phase,
+                   final long nanos,
+                   final long[] cls) {
+    final int i = phase.ordinal();
+
+    totals[i] += nanos;
+
+    if (currentRound != null) {
+      currentRound[i] += nanos;
+    }
+
+    if (cls != null) {
+      cls[i] += nanos;
+    }
+  }
+
+  private static void phases(final StringBuilder sb,
+                             final long[] vals) {
+    sb.append('{');
+    for (final var phase: Phase.values()) {
+      if (phase.ordinal() > 0) {
+        sb.append(", ");
+      }
+      string(sb, phase.getLabel());
+      sb.append(": ").append(vals[phase.ordinal()]);
+    }
+    sb.append('}');
+  }
+
+  private static void cache(final StringBuilder sb,
+                            final String name,
+                            final long hits,
+                            final long misses) {
+    sb.append("\n    ");
+    string(sb, name);
+    sb.append(": {\"hits\": ").append(hits)
+      .append(", \"misses\": ").append(misses)
+      .append('}');
+  }
+
+  private static void string(final StringBuilder sb,
+                             final String val) {
+    sb.append('"');
+    for (int i = 0; i < val.length(); i++) {
+      final char c = val.charAt(i);
+      if ((c == '"') || (c == '\\')) {
+        sb.append('\\');
+      }
+      sb.append(c);
+    }
+    sb.append('"');
+  }
+
+  private static long sum(final long[] vals) {
+    long res = 0;
+    for (final long val: vals) {
+      res += val;
+    }
+
+    return res;
+  }
+
+  private static String millis(final long nanos) {
+    return format("%.3f", nanos / 1_000_000.0);
+  }
+}
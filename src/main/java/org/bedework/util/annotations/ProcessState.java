@@ -18,15 +18,40 @@
 */
 package org.bedework.util.annotations;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 
 /**
  * @author douglm
@@ -45,9 +70,105 @@ public abstract class ProcessState {
   /* Calculated size of fixed fields. */
   protected int sizeOverhead;
 
-  private boolean debug;
+  private LogLevel logLevel = LogLevel.INFO;
+
+  /* Skip classes whose model is unchanged since generation */
+  private boolean skipUpToDate;
+
+  /* Class currently being processed - originating element for
+     generated files. */
+  private TypeElement currentClass;
+
+  /* Generated file names keyed by originating class */
+  private final Map<String, TreeSet<String>> generated =
+          new HashMap<>();
+
+  private FingerprintIndex modelIndex;
+
+  private int upToDateSkipped;
+
+  /* Qualified names of classes queued or processed in this run */
+  private final Set<String> processed = new HashSet<>();
+
+  /* Classes waiting to be processed - superclasses first */
+  private final ArrayDeque<TypeElement> queue = new ArrayDeque<>();
+
+  private boolean draining;
+
+  private int duplicatesSkipped;
+
+  private ParallelRenderer parallelRenderer;
+
+  private final SourceWriter sourceWriter = new SourceWriter(this);
+
+  private boolean streamingOutput;
+
+  private final ProcessMetrics metrics = new ProcessMetrics();
+
+  private boolean metricsReport;
+
+  private static final String metricsReportName = "bw-metrics.json";
+
+  private int peakBufferSize;
+
+  /* Per round caches keyed by identity. */
+  private final Map<TypeMirror, Element> elements =
+          new IdentityHashMap<>();
+  private final Map<TypeMirror, TypeCategory> categories =
+          new IdentityHashMap<>();
+  private final Map<Element, List<ExecutableElement>> methods =
+          new IdentityHashMap<>();
+  private final Map<Element, List<? extends Element>> enclosed =
+          new IdentityHashMap<>();
+  private final Map<TypeElement, List<ExecutableElement>> inherited =
+          new IdentityHashMap<>();
+  private final Map<TypeElement, ClassDescriptor> descriptors =
+          new IdentityHashMap<>();
+  private final Map<TypeElement, String> stamps =
+          new IdentityHashMap<>();
+
+  private final DescriptorBuilder descriptorBuilder =
+          new DescriptorBuilder(this);
+
+  private boolean wantDescriptors;
+
+  private final List<SourceGenerator> generators = new ArrayList<>();
+
+  private DescriptorCache descriptorCache;
+
+  /* Qualified names of classes compiled from source */
+  private final Set<String> sourceClasses = new HashSet<>();
+
+  private TypeClassifier typeClassifier;
+
+  private TypeNames typeNames;
+
+  private final PrefixStripper prefixStripper =
+          PrefixStripper.withDefaults();
+
+  private final TypeRenderCache renderCache = new TypeRenderCache();
+
+  private long cacheHits;
+  private long cacheMisses;
+
+  private static final String modelIndexName =
+          "bw-model-index.properties";
+
+  /* Key for fingerprint of processor options, version and
+     templates */
+  private static final String optionsKey = "$options";
+
+  /* Key for paths of templates read - newline separated */
+  private static final String templatesKey = "$templates";
+
+  /* Digest of the processor options and version */
+  private String optionsDigest = "";
 
-  /** Should create new visitor on each call.
+  /* Obtained once from getVisitor() and reused */
+  private ElementVisitor visitor;
+
+  /** Called once - the visitor is reused for every class so must
+   * not hold any state of its own.
    *
    * @return visitor
    */
@@ -72,11 +193,48 @@ public abstract class ProcessState {
                                       final String outFileName) {
     classHandler = new ClassHandler(this,
                                     tm,
-                                    outFileName);
+                                    outFileName,
+                                    getOriginatingElements());
 
     return classHandler;
   }
 
+  /** The elements a generated file depends on. Passed to the Filer
+   * so that build tools can do incremental compilation.
+   *
+   * @return current class or empty array
+   */
+  public Element[] getOriginatingElements() {
+    if (currentClass == null) {
+      return new Element[0];
+    }
+
+    return new Element[]{currentClass};
+  }
+
+  /**
+   * @return the class being processed or null
+   */
+  public TypeElement getCurrentClass() {
+    return currentClass;
+  }
+
+  /** Record the generation of a file.
+   *
+   * @param outFileName of generated file
+   * @param originatingElements elements it was generated from
+   */
+  public void recordGenerated(final String outFileName,
+                              final Element... originatingElements) {
+    for (final var el: originatingElements) {
+      if (el instanceof final TypeElement te) {
+        generated.computeIfAbsent(te.getQualifiedName().toString(),
+                                  k -> new TreeSet<>())
+                 .add(outFileName);
+      }
+    }
+  }
+
   public ClassHandler getClassHandler() {
     return classHandler;
   }
@@ -88,14 +246,355 @@ public abstract class ProcessState {
     }
   }
 
+  private ElementVisitor visitor() {
+    if (visitor == null) {
+      visitor = getVisitor();
+    }
+
+    return visitor;
+  }
+
+  /** Queue the class for processing. Any superclasses for which
+   * shouldProcessSuperClass is true are queued ahead of it. Each
+   * class is processed at most once per run - later requests are
+   * counted and ignored.
+   *
+   * <p>If called while processing another class the new class is
+   * processed once that class is complete.
+   *
+   * @param el the class
+   */
   public void processClass(final Element el) {
-    final String className = el.asType().toString();
+    if (!(el instanceof final TypeElement te)) {
+      if (debug()) {
+        note("Processing " + el.asType());
+      }
+
+      el.accept(visitor(), this);
+      return;
+    }
+
+    enqueue(te);
+
+    if (draining) {
+      return;
+    }
+
+    draining = true;
+    try {
+      for (;;) {
+        final var next = queue.poll();
+        if (next == null) {
+          break;
+        }
 
+        generateClass(next);
+      }
+    } finally {
+      draining = false;
+      queue.clear();
+    }
+  }
+
+  private void enqueue(final TypeElement te) {
+    if (!processed.add(te.getQualifiedName().toString())) {
+      duplicatesSkipped++;
+      if (debug()) {
+        note("Already processed - skipped " + te.asType());
+      }
+      return;
+    }
+
+    final TypeMirror superD = te.getSuperclass();
+    if (shouldProcessSuperClass(superD) &&
+            (asElement(superD) instanceof final TypeElement superEl)) {
+      enqueue(superEl);
+    }
+
+    queue.add(te);
+  }
+
+  private void generateClass(final TypeElement te) {
     if (debug()) {
-      note("Processing " + className);
+      note("Processing " + te.asType());
+    }
+
+    final var qname = te.getQualifiedName().toString();
+
+    String fingerprint = null;
+    if (skipUpToDate()) {
+      fingerprint = ModelFingerprint.compute(te);
+      if (upToDate(qname, fingerprint)) {
+        upToDateSkipped++;
+        if (debug()) {
+          note("Up to date - skipped " + te.asType());
+        }
+        return;
+      }
+
+      generated.remove(qname);
+    }
+
+    final var saveClass = currentClass;
+    try {
+      currentClass = te;
+      metrics.beginClass(qname);
+
+      if (parallelRenderer != null) {
+        final var snap = snapshot(te);
+        if (snap != null) {
+          // Index is updated when the results are committed
+          parallelRenderer.submit(te, fingerprint, snap);
+          return;
+        }
+      }
+
+      te.accept(visitor(), this);
+    } finally {
+      metrics.endClass();
+      currentClass = saveClass;
+    }
+
+    if (fingerprint != null) {
+      updateModelIndex(qname, fingerprint);
+    }
+  }
+
+  /** Override to support parallel generation. Called on the
+   * compiler thread - the snapshot must capture everything needed
+   * to render the class as it is rendered on another thread.
+   *
+   * @param el the class
+   * @return snapshot or null to process the class normally
+   */
+  public ClassSnapshot snapshot(final TypeElement el) {
+    return null;
+  }
+
+  /** Called at the end of each round. Commits any parallel
+   * rendering so the generated files take part in the next round.
+   */
+  public void endRound() {
+    if (parallelRenderer != null) {
+      parallelRenderer.commit();
+    }
+  }
+
+  /** Record the fingerprint and generated files for a class.
+   *
+   * @param className qualified name
+   * @param fingerprint of class model
+   */
+  public void updateModelIndex(final String className,
+                               final String fingerprint) {
+    if (modelIndex == null) {
+      return;
+    }
+
+    final var outs = generated.get(className);
+    final var sb = new StringBuilder(fingerprint);
+    if (outs != null) {
+      for (final var out: outs) {
+        sb.append(',').append(out);
+      }
+    }
+
+    modelIndex.put(className, sb.toString());
+  }
+
+  /**
+   * @return true if classes with a snapshot are rendered in parallel
+   */
+  public boolean parallel() {
+    return parallelRenderer != null;
+  }
+
+  /** Classes for which snapshot returns non-null are rendered on a
+   * pool and written at the end of the round in a stable order.
+   *
+   * @param parallelism number of threads - 0 for none
+   */
+  public void setParallelism(final int parallelism) {
+    if (parallelRenderer != null) {
+      parallelRenderer.close();
+      parallelRenderer = null;
     }
 
-    el.accept(getVisitor(), this);
+    if (parallelism > 0) {
+      parallelRenderer = new ParallelRenderer(this, parallelism);
+    }
+  }
+
+  /* Index entries are the fingerprint followed by the generated
+     file names, comma separated.
+   */
+  private boolean upToDate(final String className,
+                           final String fingerprint) {
+    final var entry = modelIndex.get(className);
+    if (entry == null) {
+      return false;
+    }
+
+    final var parts = entry.split(",");
+    if (!parts[0].equals(fingerprint)) {
+      return false;
+    }
+
+    for (int i = 1; i < parts.length; i++) {
+      if (!generatedExists(parts[i]) || !compilerSees(parts[i])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /** Generated files are only compiled if created through the Filer
+   * in this run. One which is not regenerated must therefore be
+   * visible to the compiler some other way - because the generated
+   * sources directory is a source root or the class is in the
+   * output of an earlier build.
+   *
+   * @param outFileName qualified name of generated class
+   * @return true if the compiler can see the generated class
+   */
+  public boolean compilerSees(final String outFileName) {
+    return env.getElementUtils().getTypeElement(outFileName) != null;
+  }
+
+  /**
+   * @param outFileName qualified name of generated class
+   * @return true if the generated source exists in the output
+   */
+  public boolean generatedExists(final String outFileName) {
+    final int pos = outFileName.lastIndexOf('.');
+    final String pkg;
+    final String name;
+
+    if (pos < 0) {
+      pkg = "";
+      name = outFileName;
+    } else {
+      pkg = outFileName.substring(0, pos);
+      name = outFileName.substring(pos + 1);
+    }
+
+    try {
+      final var fo = env.getFiler()
+                        .getResource(StandardLocation.SOURCE_OUTPUT,
+                                     pkg, name + ".java");
+      return fo.getLastModified() > 0;
+    } catch (final Throwable ignored) {
+      return false;
+    }
+  }
+
+  /** Called when processing is complete to save any persistent
+   * state, e.g. the up-to-date index.
+   */
+  public void persistState() {
+    if (modelIndex != null) {
+      // Include templates first read in this run
+      final var templates = new TreeSet<>(
+              templatePaths(modelIndex.get(templatesKey)));
+      templates.addAll(TemplateCache.getPaths());
+      modelIndex.put(templatesKey, String.join("\n", templates));
+      modelIndex.put(optionsKey, outputFingerprint(templates));
+      modelIndex.save();
+    }
+
+    sourceWriter.save();
+
+    if (descriptorCache != null) {
+      descriptorCache.save();
+    }
+
+    if (parallelRenderer != null) {
+      parallelRenderer.close();
+    }
+
+    if (metricsReport) {
+      metrics.writeReport(Path.of(getResourcePath(), metricsReportName),
+                          this);
+    }
+  }
+
+  /**
+   * @return writer for generated sources
+   */
+  public SourceWriter getSourceWriter() {
+    return sourceWriter;
+  }
+
+  /**
+   * @return true if ClassHandler appends sections to buffers rather
+   *         than collecting separate strings.
+   */
+  public boolean streamingOutput() {
+    return streamingOutput;
+  }
+
+  /** In streaming mode fields are output in order of addition and
+   * are not de-duplicated. ClassHandler.end() writes the sections
+   * straight to a Writer obtained from openWriter() so the whole
+   * file is never held in memory. Such files are always written -
+   * skipUnchanged does not apply.
+   *
+   * @param val true for streaming mode
+   */
+  public void setStreamingOutput(final boolean val) {
+    streamingOutput = val;
+  }
+
+  /**
+   * @return metrics - possibly not enabled
+   */
+  public ProcessMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Requires a resource path to hold the report. Enables metrics.
+   *
+   * @param val true to write a JSON metrics report
+   */
+  public void setMetricsReport(final boolean val) {
+    metricsReport = false;
+
+    if (!val) {
+      return;
+    }
+
+    if (getResourcePath() == null) {
+      warn("metricsReport requires resourcePath - ignored");
+      return;
+    }
+
+    metricsReport = true;
+    metrics.setEnabled(true);
+  }
+
+  /**
+   * @param size in chars of generated text held in memory for a file
+   *             when it is written
+   */
+  public void recordBufferSize(final int size) {
+    if (size > peakBufferSize) {
+      peakBufferSize = size;
+    }
+  }
+
+  /**
+   * @return most chars of generated text held in memory for a file
+   */
+  public int getPeakBufferSize() {
+    return peakBufferSize;
+  }
+
+  /**
+   * @return number of generated files not rewritten as unchanged
+   */
+  public int getUnchangedSkipped() {
+    return sourceWriter.getUnchanged();
   }
 
   /** Override to do processing for a class
@@ -112,6 +611,288 @@ public abstract class ProcessState {
   public void processMethod(final ExecutableElement el) {
   }
 
+  /** Called after the class has been visited and before endClass if
+   * wantDescriptors() returns true. Override to generate from the
+   * descriptor rather than the language model.
+   *
+   * @param cd descriptor for the class
+   */
+  public void processDescriptor(final ClassDescriptor cd) {
+  }
+
+  /**
+   * @return true if processDescriptor should be called
+   */
+  public boolean wantDescriptors() {
+    return wantDescriptors || !generators.isEmpty();
+  }
+
+  /** Generators are run for each class for which startClass returned
+   * true.
+   *
+   * @param val generator to add
+   */
+  public void addGenerator(final SourceGenerator val) {
+    generators.add(val);
+  }
+
+  /**
+   * @return generators run for each class
+   */
+  public List<SourceGenerator> getGenerators() {
+    return Collections.unmodifiableList(generators);
+  }
+
+  /** Run the generators for the current class. Rendered in parallel
+   * if enabled.
+   *
+   * @param cd descriptor for the class
+   */
+  public void runGenerators(final ClassDescriptor cd) {
+    if (generators.isEmpty()) {
+      return;
+    }
+
+    if ((cd.type() instanceof final TypeName.Declared d) &&
+            !d.typeArgs().isEmpty()) {
+      if (debug()) {
+        note("Generic class - not generated: " + cd.qualifiedName());
+      }
+      return;
+    }
+
+    final var table = PropertyTable.build(cd, this);
+    final var gens = new ArrayList<SourceGenerator>(generators.size());
+    for (final var gen: generators) {
+      final var conflict = gen.conflicts(table);
+      if (conflict != null) {
+        error("Generator " + gen.getName() + " cannot process " +
+                      cd.qualifiedName() + ": " + conflict);
+        continue;
+      }
+
+      gens.add(gen);
+    }
+
+    if (gens.isEmpty()) {
+      return;
+    }
+
+    final var origin = currentClass;
+
+    for (final var gen: gens) {
+      recordGenerated(gen.outFileName(table), origin);
+    }
+
+    final ClassSnapshot snap = () -> {
+      final var res = new ArrayList<GeneratedSource>(gens.size());
+      for (final var gen: gens) {
+        res.add(new GeneratedSource(gen.outFileName(table),
+                                    gen.generate(table)));
+      }
+
+      return res;
+    };
+
+    if (parallelRenderer != null) {
+      parallelRenderer.submit(origin, null, snap);
+      return;
+    }
+
+    for (final var src: snap.render()) {
+      recordBufferSize(src.content().length());
+      sourceWriter.write(src.outFileName(), src.content(), origin);
+    }
+  }
+
+  /**
+   * @param val true if processDescriptor should be called
+   */
+  public void setWantDescriptors(final boolean val) {
+    wantDescriptors = val;
+  }
+
+  /** Cached for the round. A descriptor may be captured by a
+   * ClassSnapshot for parallel rendering.
+   *
+   * @param el the class
+   * @return descriptor for the class
+   */
+  public ClassDescriptor getDescriptor(final TypeElement el) {
+    final var cached = descriptors.get(el);
+    if (cached != null) {
+      cacheHits++;
+      return cached;
+    }
+
+    cacheMisses++;
+
+    final ClassDescriptor res;
+    if ((descriptorCache == null) || isSourceClass(el)) {
+      res = descriptorBuilder.build(el);
+    } else {
+      final var qname = el.getQualifiedName().toString();
+      final var stamp = descriptorStamp(el);
+      final var persisted = descriptorCache.get(qname, stamp);
+
+      if (persisted != null) {
+        res = persisted;
+      } else {
+        res = descriptorBuilder.build(el);
+        descriptorCache.put(stamp, res);
+      }
+    }
+
+    descriptors.put(el, res);
+
+    return res;
+  }
+
+  /* Identity of the class file and the stamp of the superclass - so
+     changes to any ancestor are seen. Falls back to the signatures
+     of the members if the class file cannot be found, e.g. for
+     platform classes. Cached for the round.
+   */
+  private String descriptorStamp(final TypeElement el) {
+    final var cached = stamps.get(el);
+    if (cached != null) {
+      return cached;
+    }
+
+    final var sb = new StringBuilder();
+    final var classFile = classFileStamp(el);
+
+    if (classFile != null) {
+      sb.append(classFile).append('\n');
+    } else {
+      sb.append(el.getModifiers())
+        .append('|').append(el.getSuperclass())
+        .append('|').append(el.getInterfaces())
+        .append('\n');
+
+      for (final Element subEl: getEnclosedElements(el)) {
+        sb.append(subEl.getKind())
+          .append('|').append(subEl.getModifiers())
+          .append('|').append(subEl)
+          .append('|').append(subEl.asType())
+          .append('\n');
+      }
+    }
+
+    if (asElement(el.getSuperclass()) instanceof final TypeElement superEl) {
+      sb.append(descriptorStamp(superEl));
+    }
+
+    final var res = FingerprintIndex.digest(sb);
+    stamps.put(el, res);
+
+    return res;
+  }
+
+  /* Location and modification time of the class file on the class
+     path - for a jar entry also those of the jar, as entry times
+     may be fixed by reproducible builds. Null if not found. */
+  private String classFileStamp(final TypeElement el) {
+    final var elUtils = env.getElementUtils();
+    final var pkg = elUtils.getPackageOf(el)
+                           .getQualifiedName().toString();
+    var name = elUtils.getBinaryName(el).toString();
+    if (!pkg.isEmpty()) {
+      name = name.substring(pkg.length() + 1);
+    }
+
+    final FileObject fo;
+    try {
+      fo = env.getFiler().getResource(StandardLocation.CLASS_PATH,
+                                      pkg, name + ".class");
+    } catch (final IOException | IllegalArgumentException ignored) {
+      return null;
+    }
+
+    final long modified = fo.getLastModified();
+    if (modified <= 0) {
+      return null;
+    }
+
+    final var uri = fo.toUri();
+    final var sb = new StringBuilder().append(uri)
+                                      .append('|').append(modified);
+
+    if ("jar".equals(uri.getScheme())) {
+      final var ssp = uri.getRawSchemeSpecificPart();
+      final int pos = ssp.indexOf("!/");
+      if (pos > 0) {
+        try {
+          final var jar = Path.of(URI.create(ssp.substring(0, pos)));
+          sb.append('|').append(Files.getLastModifiedTime(jar))
+            .append('|').append(Files.size(jar));
+        } catch (final IOException | RuntimeException ignored) {
+          return null;
+        }
+      }
+    }
+
+    return sb.toString();
+  }
+
+  /** Persistently cache descriptors of classes which are not
+   * compiled from source, e.g. superclasses in jars. Requires a
+   * resource path. Entries are stamped with the location and
+   * modification time of the class files of the class and its
+   * ancestors - or, if not found, the signatures of their members.
+   * The cache is cleared if the options change.
+   *
+   * @param val true to use the cache
+   */
+  public void setDescriptorCache(final boolean val) {
+    descriptorCache = null;
+
+    if (!val) {
+      return;
+    }
+
+    if (resourcePath == null) {
+      warn("descriptorCache requires resourcePath - ignored");
+      return;
+    }
+
+    descriptorCache = new DescriptorCache(resourcePath);
+  }
+
+  /**
+   * @return persistent descriptor cache or null
+   */
+  public DescriptorCache getDescriptorCache() {
+    return descriptorCache;
+  }
+
+  /** Note the classes being compiled in this round.
+   *
+   * @param els root elements
+   */
+  public void addSourceElements(final Collection<? extends Element> els) {
+    for (final var el: els) {
+      if (el instanceof final TypeElement te) {
+        sourceClasses.add(te.getQualifiedName().toString());
+      }
+    }
+  }
+
+  /**
+   * @param el class
+   * @return true if it, or its outermost class, is compiled from
+   *         source in this compilation
+   */
+  public boolean isSourceClass(final TypeElement el) {
+    Element outer = el;
+    while (!(outer.getEnclosingElement() instanceof PackageElement)) {
+      outer = outer.getEnclosingElement();
+    }
+
+    return sourceClasses.contains(
+            ((TypeElement)outer).getQualifiedName().toString());
+  }
+
   /**
    *
    * @param tm for super class
@@ -141,25 +922,287 @@ public abstract class ProcessState {
    * @param tm for super class
    */
   public void processSuperMethods(final TypeMirror tm) {
-    final var el = env.getTypeUtils().asElement(tm);
+    final var el = (TypeElement)asElement(tm);
 
     if (debug()) {
       note("process super method: " + el.toString());
     }
 
-    for (final Element subEl: el.getEnclosedElements()) {
+    final var sub = currentClass;
+    if ((sub == null) || (asElement(sub.getSuperclass()) != el)) {
+      for (final ExecutableElement meth: getInheritedMethods(el)) {
+        processMethod(meth);
+      }
+      return;
+    }
+
+    // Skip those declared - or overridden - by the current class
+    for (final ExecutableElement meth: getInheritedMethods(sub)) {
+      if (meth.getEnclosingElement() != sub) {
+        processMethod(meth);
+      }
+    }
+  }
+
+  /** Cached for the round. The methods declared by the class
+   * followed by those it inherits from superclasses for which
+   * shouldProcessSuperMethods is true. Methods overridden lower
+   * down the hierarchy are dropped so each appears once.
+   *
+   * <p>Superclasses are resolved first so each class in a shared
+   * hierarchy is only examined once per round.
+   *
+   * @param el type element
+   * @return unmodifiable list of methods
+   */
+  public List<ExecutableElement> getInheritedMethods(
+          final TypeElement el) {
+    final var meths = inherited.get(el);
+    if (meths != null) {
+      cacheHits++;
+      return meths;
+    }
+
+    cacheMisses++;
+    final var declared = getMethods(el);
+
+    final TypeMirror superD = el.getSuperclass();
+    if (!shouldProcessSuperMethods(superD)) {
+      inherited.put(el, declared);
+      return declared;
+    }
+
+    final var superMeths =
+            getInheritedMethods((TypeElement)asElement(superD));
+    if (superMeths.isEmpty()) {
+      inherited.put(el, declared);
+      return declared;
+    }
+
+    // Only methods with the same name can override
+    final var byName = new HashMap<String, List<ExecutableElement>>();
+    for (final var meth: declared) {
+      byName.computeIfAbsent(meth.getSimpleName().toString(),
+                             k -> new ArrayList<>(1))
+            .add(meth);
+    }
+
+    final var res = new ArrayList<>(declared);
+    final var elUtils = env.getElementUtils();
+
+    for (final var superMeth: superMeths) {
+      final var candidates =
+              byName.get(superMeth.getSimpleName().toString());
+      if (!overridden(elUtils, candidates, superMeth, el)) {
+        res.add(superMeth);
+      }
+    }
+
+    final var ures = Collections.unmodifiableList(res);
+    inherited.put(el, ures);
+
+    return ures;
+  }
+
+  private static boolean overridden(
+          final Elements elUtils,
+          final List<ExecutableElement> candidates,
+          final ExecutableElement superMeth,
+          final TypeElement el) {
+    if (candidates == null) {
+      return false;
+    }
+
+    for (final var meth: candidates) {
+      if (elUtils.overrides(meth, superMeth, el)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /** Called at the start of each round. Discards cached
+   * information from the previous round.
+   */
+  public void startRound() {
+    elements.clear();
+    categories.clear();
+    methods.clear();
+    enclosed.clear();
+    inherited.clear();
+    descriptors.clear();
+    stamps.clear();
+
+    if (typeNames != null) {
+      typeNames.clear();
+    }
+    renderCache.clear();
+    metrics.startRound();
+  }
+
+  /** Cached for the round.
+   *
+   * @param tm type
+   * @return element for type or null
+   */
+  public Element asElement(final TypeMirror tm) {
+    final var el = elements.get(tm);
+    if (el != null) {
+      cacheHits++;
+      return el;
+    }
+
+    if (elements.containsKey(tm)) {
+      cacheHits++;
+      return null;
+    }
+
+    cacheMisses++;
+    final var res = env.getTypeUtils().asElement(tm);
+    elements.put(tm, res);
+
+    return res;
+  }
+
+  /** Cached for the round.
+   *
+   * @param el type element
+   * @return unmodifiable list of methods declared by the element
+   */
+  public List<ExecutableElement> getMethods(final TypeElement el) {
+    final var meths = methods.get(el);
+    if (meths != null) {
+      cacheHits++;
+      return meths;
+    }
+
+    cacheMisses++;
+    final var res = new ArrayList<ExecutableElement>();
+    for (final Element subEl: getEnclosedElements(el)) {
       if (subEl.getKind() == ElementKind.METHOD) {
-        processMethod((ExecutableElement)subEl);
+        res.add((ExecutableElement)subEl);
       }
     }
 
-    final var typeEl =
-            (TypeElement)env.getTypeUtils().asElement(el.asType());
+    final var ures = Collections.unmodifiableList(res);
+    methods.put(el, ures);
 
-    final TypeMirror superD = typeEl.getSuperclass();
-    if (shouldProcessSuperMethods(superD)) {
-      processSuperMethods(superD);
+    return ures;
+  }
+
+  /** Types which cannot be resolved - usually because they are
+   * generated later in this round - have kind ERROR.
+   *
+   * @param el type element
+   * @return true if the class, its fields or methods refer to an
+   *         unresolved type.
+   */
+  public boolean hasUnresolvedTypes(final TypeElement el) {
+    if (unresolved(el.getSuperclass())) {
+      return true;
+    }
+
+    for (final TypeMirror tm: el.getInterfaces()) {
+      if (unresolved(tm)) {
+        return true;
+      }
+    }
+
+    for (final Element subEl: getEnclosedElements(el)) {
+      if (subEl.getKind() == ElementKind.FIELD) {
+        if (unresolved(subEl.asType())) {
+          return true;
+        }
+        continue;
+      }
+
+      if (!(subEl instanceof final ExecutableElement meth)) {
+        continue;
+      }
+
+      if (unresolved(meth.getReturnType())) {
+        return true;
+      }
+
+      for (final var par: meth.getParameters()) {
+        if (unresolved(par.asType())) {
+          return true;
+        }
+      }
+
+      for (final TypeMirror tm: meth.getThrownTypes()) {
+        if (unresolved(tm)) {
+          return true;
+        }
+      }
     }
+
+    return false;
+  }
+
+  private static boolean unresolved(final TypeMirror tm) {
+    if (tm == null) {
+      return false;
+    }
+
+    switch (tm.getKind()) {
+      case ERROR:
+        return true;
+
+      case DECLARED:
+        for (final TypeMirror arg:
+                ((DeclaredType)tm).getTypeArguments()) {
+          if (unresolved(arg)) {
+            return true;
+          }
+        }
+        return false;
+
+      case ARRAY:
+        return unresolved(((ArrayType)tm).getComponentType());
+
+      case WILDCARD:
+        final var wt = (WildcardType)tm;
+        return unresolved(wt.getExtendsBound()) ||
+                unresolved(wt.getSuperBound());
+
+      default:
+        return false;
+    }
+  }
+
+  /** Cached for the round. The compiler builds a new list on each
+   * call to Element.getEnclosedElements().
+   *
+   * @param el type element
+   * @return enclosed elements
+   */
+  public List<? extends Element> getEnclosedElements(
+          final TypeElement el) {
+    final var res = enclosed.get(el);
+    if (res != null) {
+      return res;
+    }
+
+    final var els = el.getEnclosedElements();
+    enclosed.put(el, els);
+
+    return els;
+  }
+
+  /**
+   * @return number of type resolution cache hits
+   */
+  public long getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * @return number of type resolution cache misses
+   */
+  public long getCacheMisses() {
+    return cacheMisses;
   }
 
   public void processExecutable(final ExecutableElement e) {
@@ -170,11 +1213,167 @@ public abstract class ProcessState {
   }
 
   public boolean debug() {
-    return debug;
+    return isEnabled(LogLevel.DEBUG);
   }
 
+  /** Sets the log level to DEBUG or INFO
+   *
+   * @param val true for debug
+   */
   public void setDebug(final boolean val) {
-    debug = val;
+    if (val) {
+      setLogLevel(LogLevel.DEBUG);
+    } else {
+      setLogLevel(LogLevel.INFO);
+    }
+  }
+
+  /**
+   * @param val minimum level of messages emitted
+   */
+  public void setLogLevel(final LogLevel val) {
+    logLevel = val;
+  }
+
+  /**
+   * @return minimum level of messages emitted
+   */
+  public LogLevel getLogLevel() {
+    return logLevel;
+  }
+
+  /**
+   * @param level of message
+   * @return true if messages at that level are emitted
+   */
+  public boolean isEnabled(final LogLevel level) {
+    return level.compareTo(logLevel) >= 0;
+  }
+
+  /**
+   * @return true if we skip classes with unchanged models and
+   *         existing output.
+   */
+  public boolean skipUpToDate() {
+    return skipUpToDate;
+  }
+
+  /** Requires a resource path to hold the index.
+   *
+   * @param val true to skip classes with unchanged models
+   */
+  public void setSkipUpToDate(final boolean val) {
+    skipUpToDate = val;
+    modelIndex = null;
+
+    if (!val) {
+      return;
+    }
+
+    if (resourcePath == null) {
+      warn("skipUpToDate requires resourcePath - ignored");
+      skipUpToDate = false;
+      return;
+    }
+
+    modelIndex = new FingerprintIndex(resourcePath, modelIndexName);
+  }
+
+  /**
+   * @return number of requests to process an already processed class
+   */
+  public int getDuplicatesSkipped() {
+    return duplicatesSkipped;
+  }
+
+  /**
+   * @return number of classes skipped as up to date
+   */
+  public int getUpToDateSkipped() {
+    return upToDateSkipped;
+  }
+
+  /** Forget all up-to-date information if the processor options,
+   * the processor version or the content of any template used in
+   * the last run have changed. Forget cached descriptors if the
+   * options or version have changed.
+   *
+   * @param options processor options
+   */
+  public void checkOptions(final Map<String, String> options) {
+    optionsDigest = FingerprintIndex.digest(
+            new TreeMap<>(options) + "\n" + getProcessorVersion());
+
+    if (descriptorCache != null) {
+      descriptorCache.checkOptions(optionsDigest);
+    }
+
+    if (modelIndex == null) {
+      return;
+    }
+
+    final var templates = templatePaths(modelIndex.get(templatesKey));
+    final var fingerprint = outputFingerprint(templates);
+    if (!fingerprint.equals(modelIndex.get(optionsKey))) {
+      modelIndex.clear();
+      modelIndex.put(optionsKey, fingerprint);
+    }
+  }
+
+  /** Part of the options digest, so a new version of the processor
+   * regenerates everything. The default is the implementation
+   * version of the processor classes or, if there is none, the time
+   * their class files were built. Override to add anything else the
+   * generated output depends on.
+   *
+   * @return version of the processor
+   */
+  public String getProcessorVersion() {
+    return classVersion(getClass()) + "," +
+            classVersion(ProcessState.class);
+  }
+
+  private static String classVersion(final Class<?> cl) {
+    final var version = cl.getPackage().getImplementationVersion();
+    if (version != null) {
+      return cl.getName() + ":" + version;
+    }
+
+    try {
+      final var src = cl.getProtectionDomain().getCodeSource();
+      if (src != null) {
+        var path = Path.of(src.getLocation().toURI());
+        if (Files.isDirectory(path)) {
+          path = path.resolve(cl.getName().replace('.', '/') + ".class");
+        }
+
+        return cl.getName() + "@" +
+                Files.getLastModifiedTime(path).toMillis();
+      }
+    } catch (final Throwable ignored) {
+      // Fall through
+    }
+
+    return cl.getName();
+  }
+
+  private static List<String> templatePaths(final String val) {
+    if ((val == null) || val.isEmpty()) {
+      return List.of();
+    }
+
+    return List.of(val.split("\n"));
+  }
+
+  /* Options digest plus the digest of each template */
+  private String outputFingerprint(final Collection<String> templates) {
+    final var sb = new StringBuilder(optionsDigest);
+    for (final var path: templates) {
+      sb.append('\n').append(path)
+        .append('=').append(TemplateCache.digest(path));
+    }
+
+    return FingerprintIndex.digest(sb);
   }
 
   public String getResourcePath() {
@@ -199,32 +1398,74 @@ public abstract class ProcessState {
 
   /**
    * @param tm for possible collection
-   * @return boolean
+   * @return true if assignable to java.util.Collection
    */
   public boolean isCollection(final TypeMirror tm) {
-    final var el = (TypeElement)env.getTypeUtils().asElement(tm);
+    return classify(tm) == TypeCategory.COLLECTION;
+  }
 
-    if (el == null) {
-      return false;
+  /** Cached for the round.
+   *
+   * @param tm type to classify
+   * @return category - never null
+   */
+  public TypeCategory classify(final TypeMirror tm) {
+    final var cached = categories.get(tm);
+    if (cached != null) {
+      cacheHits++;
+      return cached;
     }
 
-    if (el.getKind() == ElementKind.CLASS) {
-      for (final TypeMirror itm: el.getInterfaces()) {
-        if (testCollection(itm)) {
-          return  true;
-        }
-      }
+    cacheMisses++;
+    final var res = getTypeClassifier().classify(tm);
+    categories.put(tm, res);
 
-      return false;
+    return res;
+  }
+
+  /**
+   * @return classifier for this environment
+   */
+  public TypeClassifier getTypeClassifier() {
+    if (typeClassifier == null) {
+      typeClassifier = new TypeClassifier(env);
     }
 
-    return testCollection(tm);
+    return typeClassifier;
+  }
+
+  /**
+   * @return type name builder for the round
+   */
+  public TypeNames getTypeNames() {
+    if (typeNames == null) {
+      typeNames = new TypeNames(env.getElementUtils());
+    }
+
+    return typeNames;
+  }
+
+  /**
+   * @return stripper for ClassHandler.fixTypeName
+   */
+  public PrefixStripper getPrefixStripper() {
+    return prefixStripper;
+  }
+
+  /**
+   * @return rendered types for the round
+   */
+  public TypeRenderCache getRenderCache() {
+    return renderCache;
   }
 
   /**
    * @param tm TypeMirror
    * @return boolean
+   * @deprecated Only recognizes Collection, List and Set. Use
+   *             classify or isCollection
    */
+  @Deprecated
   public static boolean testCollection(final TypeMirror tm) {
     if (!(tm instanceof DeclaredType)) {
       return false;
@@ -305,4 +1546,37 @@ public abstract class ProcessState {
     System.out.println(msg);
     env.getMessager().printMessage(Diagnostic.Kind.NOTE, msg);
   }
+
+  /** The message is only built if the level is enabled.
+   *
+   * @param level of message
+   * @param msg supplies the message
+   */
+  public void log(final LogLevel level,
+                  final Supplier<String> msg) {
+    if (isEnabled(level)) {
+      note(msg.get());
+    }
+  }
+
+  /**
+   * @param msg supplies the message
+   */
+  public void trace(final Supplier<String> msg) {
+    log(LogLevel.TRACE, msg);
+  }
+
+  /**
+   * @param msg supplies the message
+   */
+  public void debug(final Supplier<String> msg) {
+    log(LogLevel.DEBUG, msg);
+  }
+
+  /**
+   * @param msg supplies the message
+   */
+  public void info(final Supplier<String> msg) {
+    log(LogLevel.INFO, msg);
+  }
 }
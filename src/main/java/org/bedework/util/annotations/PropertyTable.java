@@ -0,0 +1,370 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+
+import static java.lang.String.format;
+
+/** The properties of a class - public non-static getters and
+ * setters which declare no exceptions - each with an index.
+ * Properties are ordered by name so the indexes do not depend on
+ * the order of declaration.
+ *
+ * <p>Immutable - generators may use it on any thread.
+ *
+ * @param cls the class
+ * @param properties ordered by index
+ *
+ * @author douglm
+ */
+public record PropertyTable(ClassDescriptor cls,
+                            List<Property> properties) {
+  /** What we need to know about the type of a value */
+  public enum ValueKind {
+    BOOLEAN("boolean", "Boolean"),
+    BYTE("byte", "Byte"),
+    SHORT("short", "Short"),
+    CHAR("char", "Character"),
+    INT("int", "Integer"),
+    LONG("long", "Long"),
+    FLOAT("float", "Float"),
+    DOUBLE("double", "Double"),
+
+    /** java.lang.String */
+    STRING(null, null),
+
+    /** Any enum */
+    ENUM(null, null),
+
+    /** Any other type */
+    OTHER(null, null);
+
+    private final String primitive;
+    private final String boxed;
+
+    ValueKind(final String primitive,
+              final String boxed) {
+      this.primitive = primitive;
+      this.boxed = boxed;
+    }
+
+    /**
+     * @return true for the primitive kinds
+     */
+    public boolean isPrimitive() {
+      return primitive != null;
+    }
+
+    /**
+     * @return primitive type name or null
+     */
+    public String getPrimitive() {
+      return primitive;
+    }
+
+    /**
+     * @return simple name of wrapper class or null
+     */
+    public String getBoxed() {
+      return boxed;
+    }
+  }
+
+  /**
+   * @param type of value
+   * @param kind of value
+   * @param boxed true if kind is primitive and the type is the
+   *              wrapper class
+   * @param category of the type
+   * @param element type of array or collection elements - or null
+   */
+  public record ValueType(TypeName type,
+                          ValueKind kind,
+                          boolean boxed,
+                          TypeCategory category,
+                          ValueType element) {
+    /**
+     * @return true for a primitive - not a wrapper
+     */
+    public boolean isPrimitive() {
+      return kind.isPrimitive() && !boxed;
+    }
+  }
+
+  /**
+   * @param index of property
+   * @param name of property, e.g. "dtstamp"
+   * @param constName name for a constant, e.g. "DTSTAMP"
+   * @param value type of property - from the getter if any
+   * @param setterValue type taken by the setter or null
+   * @param getter possibly null
+   * @param setter possibly null
+   */
+  public record Property(int index,
+                         String name,
+                         String constName,
+                         ValueType value,
+                         ValueType setterValue,
+                         MethodDescriptor getter,
+                         MethodDescriptor setter) {
+    /**
+     * @return true if there is a getter
+     */
+    public boolean readable() {
+      return getter != null;
+    }
+
+    /**
+     * @return true if there is a setter
+     */
+    public boolean writable() {
+      return setter != null;
+    }
+  }
+
+  /** Must be called on the compiler thread.
+   *
+   * @param cd descriptor of class
+   * @param ps used to identify enums - may be null
+   * @return table of properties
+   */
+  public static PropertyTable build(final ClassDescriptor cd,
+                                    final ProcessState ps) {
+    final Map<String, MethodDescriptor> getters = new TreeMap<>();
+    final Map<String, MethodDescriptor> setters = new TreeMap<>();
+
+    for (final var m: cd.methods()) {
+      if (!m.modifiers().contains(Modifier.PUBLIC) ||
+              m.modifiers().contains(Modifier.STATIC) ||
+              !m.thrownTypes().isEmpty()) {
+        continue;
+      }
+
+      if (m.isGetter()) {
+        getters.putIfAbsent(m.accessor().fieldName(), m);
+      } else if (m.isSetter()) {
+        setters.putIfAbsent(m.accessor().fieldName(), m);
+      }
+    }
+
+    final var names = new TreeSet<>(getters.keySet());
+    names.addAll(setters.keySet());
+
+    final var props = new ArrayList<Property>(names.size());
+    for (final var name: names) {
+      final var getter = getters.get(name);
+      final var setter = setters.get(name);
+
+      ValueType setterValue = null;
+      if (setter != null) {
+        final var par = setter.parameters().get(0);
+        setterValue = valueType(par.type(), par.category(), ps);
+      }
+
+      final ValueType value;
+      if (getter != null) {
+        value = valueType(getter.returnType(),
+                          getter.returnCategory(), ps);
+      } else {
+        value = setterValue;
+      }
+
+      props.add(new Property(props.size(),
+                             name,
+                             constName(name),
+                             value,
+                             setterValue,
+                             getter,
+                             setter));
+    }
+
+    return new PropertyTable(cd, Collections.unmodifiableList(props));
+  }
+
+  /**
+   * @param type to render
+   * @return source form - using simple names for java.lang and
+   *         the package of the class
+   */
+  public String render(final TypeName type) {
+    return type.render(d -> d.implicit(cls.packageName()));
+  }
+
+  /**
+   * @param value type
+   * @return type to cast an Object to - the wrapper for primitives
+   */
+  public String castType(final ValueType value) {
+    if (value.isPrimitive()) {
+      return value.kind().getBoxed();
+    }
+
+    return render(value.type());
+  }
+
+  /**
+   * @return source form of the class type
+   */
+  public String entityType() {
+    return render(cls.type());
+  }
+
+  /**
+   * @param suffix to add to simple name of class
+   * @return qualified name of a generated class
+   */
+  public String generatedName(final String suffix) {
+    if (cls.packageName().isEmpty()) {
+      return cls.simpleName() + suffix;
+    }
+
+    return cls.packageName() + "." + cls.simpleName() + suffix;
+  }
+
+  /**
+   * @param name of property, e.g. "rootOnly"
+   * @return name for a constant, e.g. "ROOT_ONLY"
+   */
+  public static String constName(final String name) {
+    final var sb = new StringBuilder(name.length() + 4);
+
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (Character.isUpperCase(c) && (i > 0) &&
+              !Character.isUpperCase(name.charAt(i - 1))) {
+        sb.append('_');
+      }
+      sb.append(Character.toUpperCase(c));
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * @param val to quote
+   * @return val as a java string literal
+   */
+  public static String literal(final String val) {
+    final var sb = new StringBuilder(val.length() + 2).append('"');
+
+    for (int i = 0; i < val.length(); i++) {
+      final char c = val.charAt(i);
+      switch (c) {
+        case '"', '\\' -> sb.append('\\').append(c);
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default -> {
+          if ((c < 0x20) || (c > 0x7e)) {
+            sb.append(format("\\u%04x", (int)c));
+          } else {
+            sb.append(c);
+          }
+        }
+      }
+    }
+
+    return sb.append('"').toString();
+  }
+
+  private static ValueType valueType(final TypeName type,
+                                     final TypeCategory category,
+                                     final ProcessState ps) {
+    if (type instanceof final TypeName.Primitive p) {
+      for (final var kind: ValueKind.values()) {
+        if (p.name().equals(kind.getPrimitive())) {
+          return new ValueType(type, kind, false, category, null);
+        }
+      }
+
+      return new ValueType(type, ValueKind.OTHER, false,
+                           category, null);
+    }
+
+    if (type instanceof final TypeName.ArrayOf a) {
+      final TypeCategory elCategory;
+      if (a.component() instanceof TypeName.ArrayOf) {
+        elCategory = TypeCategory.ARRAY;
+      } else {
+        elCategory = TypeCategory.SCALAR;
+      }
+
+      return new ValueType(type, ValueKind.OTHER, false,
+                           TypeCategory.ARRAY,
+                           valueType(a.component(), elCategory, ps));
+    }
+
+    if (!(type instanceof final TypeName.Declared d)) {
+      return new ValueType(type, ValueKind.OTHER, false,
+                           category, null);
+    }
+
+    if ("java.lang".equals(d.packageName()) && !d.nested()) {
+      if ("String".equals(d.simpleName())) {
+        return new ValueType(type, ValueKind.STRING, false,
+                             category, null);
+      }
+
+      for (final var kind: ValueKind.values()) {
+        if (d.simpleName().equals(kind.getBoxed())) {
+          return new ValueType(type, kind, true, category, null);
+        }
+      }
+    }
+
+    if ((category == TypeCategory.COLLECTION) &&
+            (d.typeArgs().size() == 1)) {
+      var elType = d.typeArgs().get(0);
+      if ((elType instanceof final TypeName.Wildcard w) &&
+              !w.superBound() && (w.bound() != null)) {
+        elType = w.bound();
+      }
+
+      // Elements are classified as scalars - nested collections
+      // are left to the generators to reject.
+      return new ValueType(type, ValueKind.OTHER, false, category,
+                           valueType(elType, TypeCategory.SCALAR, ps));
+    }
+
+    if ((ps != null) && isEnum(ps, d.qualifiedName())) {
+      return new ValueType(type, ValueKind.ENUM, false,
+                           category, null);
+    }
+
+    return new ValueType(type, ValueKind.OTHER, false,
+                         category, null);
+  }
+
+  private static boolean isEnum(final ProcessState ps,
+                                final String qualifiedName) {
+    final var te = ps.env().getElementUtils()
+                     .getTypeElement(qualifiedName);
+
+    return (te != null) && (te.getKind() == ElementKind.ENUM);
+  }
+}
@@ -0,0 +1,73 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+/** Generates an additional class for each processed class from its
+ * properties. Generators work only from the immutable PropertyTable
+ * so may be run on any thread - they are run in parallel if the
+ * "parallel" option is set.
+ *
+ * <p>Enabled with option "generators" - a comma separated list of
+ * names - or ProcessState.addGenerator.
+ *
+ * @author douglm
+ */
+public interface SourceGenerator {
+  /**
+   * @return name used in the generators option
+   */
+  String getName();
+
+  /**
+   * @param table properties of the class
+   * @return qualified name of the generated class
+   */
+  String outFileName(PropertyTable table);
+
+  /**
+   * @param table properties of the class
+   * @return source of the generated class
+   */
+  CharSequence generate(PropertyTable table);
+
+  /** Called on the compiler thread before generate. A class for
+   * which this returns a message is reported as an error and not
+   * generated - so we never write source which cannot compile.
+   *
+   * @param table properties of the class
+   * @return null or why the class cannot be generated
+   */
+  default String conflicts(final PropertyTable table) {
+    return null;
+  }
+
+  /**
+   * @param name of a built in generator
+   * @return generator or null for unknown name
+   */
+  static SourceGenerator forName(final String name) {
+    return switch (name) {
+      case "accessor" -> new AccessorGenerator();
+      case "tracker" -> new TrackerGenerator();
+      case "codec" -> new CodecGenerator();
+      case "json" -> new JsonWriterGenerator();
+      default -> null;
+    };
+  }
+}
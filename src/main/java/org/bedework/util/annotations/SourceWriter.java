@@ -0,0 +1,383 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import org.bedework.util.annotations.ProcessMetrics.Phase;
+
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+/** Writes generated source through the Filer. If enabled a
+ * fingerprint of each file is kept in an index under the resource
+ * path and files whose content is unchanged are not rewritten.
+ *
+ * <p>The compiler only compiles generated files created through the
+ * Filer in the current run. An unchanged file is therefore only
+ * skipped if the compiler can already see the generated type -
+ * because the generated sources directory is a source root or the
+ * class is in the output of an earlier build. Otherwise it is
+ * written as usual.
+ *
+ * <p>Content is written either through a BufferedWriter over the
+ * Filer's writer or, in BYTE_BUFFER mode, encoded into a reused heap
+ * buffer and written to the output stream with a single write of its
+ * array. The processor cannot see the compiler's source encoding, so
+ * only ASCII content is written as bytes - it is the same in any
+ * ASCII compatible encoding. Other content goes through the Filer's
+ * writer, which uses the compiler's encoding.
+ *
+ * @author douglm
+ */
+public class SourceWriter {
+  /** How files are written */
+  public enum OutputMode {
+    /** BufferedWriter over JavaFileObject.openWriter() */
+    BUFFERED,
+
+    /** ASCII content in a reused heap ByteBuffer written with a
+     * single write of its array to openOutputStream(). Anything
+     * else as for BUFFERED. */
+    BYTE_BUFFER
+  }
+
+  private final ProcessState ps;
+
+  private OutputMode outputMode = OutputMode.BUFFERED;
+
+  /* 0 means size the buffer to the content */
+  private int bufferSize = defaultBufferSize;
+
+  private static final int defaultBufferSize = 8192;
+
+  /* Reused for BYTE_BUFFER mode - grown as needed */
+  private ByteBuffer byteBuffer;
+
+  private CharsetEncoder encoder;
+
+  private FingerprintIndex index;
+
+  private int written;
+
+  private int unchanged;
+
+  private static final String indexName =
+          "bw-content-index.properties";
+
+  /**
+   * @param ps the processing state
+   */
+  public SourceWriter(final ProcessState ps) {
+    this.ps = ps;
+  }
+
+  /** Requires a resource path to hold the index.
+   *
+   * @param val true to skip writing unchanged files
+   */
+  public void setSkipUnchanged(final boolean val) {
+    index = null;
+
+    if (!val) {
+      return;
+    }
+
+    if (ps.getResourcePath() == null) {
+      ps.warn("skipUnchanged requires resourcePath - ignored");
+      return;
+    }
+
+    index = new FingerprintIndex(ps.getResourcePath(), indexName);
+  }
+
+  /**
+   * @param val how files are written
+   */
+  public void setOutputMode(final OutputMode val) {
+    outputMode = val;
+  }
+
+  /**
+   * @return how files are written
+   */
+  public OutputMode getOutputMode() {
+    return outputMode;
+  }
+
+  /**
+   * @param val size in chars of the BufferedWriter buffer.
+   *            0 to size it to the content.
+   */
+  public void setBufferSize(final int val) {
+    bufferSize = Math.max(val, 0);
+  }
+
+  /**
+   * @return true if we skip writing unchanged files
+   */
+  public boolean skipUnchanged() {
+    return index != null;
+  }
+
+  /** Write the file unless it is unchanged.
+   *
+   * @param outFileName for generated file
+   * @param content of file
+   * @param originatingElements elements the file is generated from
+   * @return true if written, false if unchanged.
+   */
+  public boolean write(final String outFileName,
+                       final CharSequence content,
+                       final Element... originatingElements) {
+    final var metrics = ps.getMetrics();
+    if (!metrics.isEnabled()) {
+      return doWrite(outFileName, content, originatingElements);
+    }
+
+    metrics.addGenerated(content);
+
+    final long start = metrics.start();
+    try {
+      return doWrite(outFileName, content, originatingElements);
+    } finally {
+      metrics.end(Phase.WRITE, start,
+                  originatingClass(originatingElements));
+    }
+  }
+
+  private boolean doWrite(final String outFileName,
+                          final CharSequence content,
+                          final Element... originatingElements) {
+    String fingerprint = null;
+
+    if (index != null) {
+      fingerprint = FingerprintIndex.digest(content);
+      if (fingerprint.equals(index.get(outFileName)) &&
+              ps.generatedExists(outFileName) &&
+              ps.compilerSees(outFileName)) {
+        unchanged++;
+        if (ps.debug()) {
+          ps.note("Unchanged - not written: " + outFileName);
+        }
+        return false;
+      }
+    }
+
+    try {
+      final JavaFileObject outFile =
+              ps.env().getFiler().createSourceFile(outFileName,
+                                                   originatingElements);
+      if ((outputMode != OutputMode.BYTE_BUFFER) ||
+              !writeBytes(outFile, content)) {
+        writeChars(outFile, content);
+      }
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+
+    written++;
+
+    if (fingerprint != null) {
+      index.put(outFileName, fingerprint);
+    }
+
+    return true;
+  }
+
+  private void writeChars(final JavaFileObject outFile,
+                          final CharSequence content)
+          throws IOException {
+    final int size;
+    if (bufferSize == 0) {
+      // Buffer holds the whole file - single flush on close
+      size = Math.max(content.length(), 1);
+    } else {
+      size = bufferSize;
+    }
+
+    try (final var out = new BufferedWriter(outFile.openWriter(),
+                                            size)) {
+      out.append(content);
+    }
+  }
+
+  /** Open a file to be written in parts - used for streaming
+   * output. The content is not fingerprinted so the file is always
+   * written. The output mode does not apply.
+   *
+   * @param outFileName for generated file
+   * @param originatingElements elements the file is generated from
+   * @return writer - caller must close
+   */
+  public Writer openSections(final String outFileName,
+                             final Element... originatingElements) {
+    final var metrics = ps.getMetrics();
+    metrics.addGenerated("");
+
+    try {
+      final JavaFileObject outFile =
+              ps.env().getFiler().createSourceFile(outFileName,
+                                                   originatingElements);
+      written++;
+
+      // The content size is unknown - 0 means the default
+      final int size;
+      if (bufferSize == 0) {
+        size = defaultBufferSize;
+      } else {
+        size = bufferSize;
+      }
+
+      final var out = new BufferedWriter(outFile.openWriter(), size);
+      if (!metrics.isEnabled()) {
+        return out;
+      }
+
+      // Counts what is written - allocates for each write
+      return new FilterWriter(out) {
+        @Override
+        public void write(final int c) throws IOException {
+          metrics.addBytes(String.valueOf((char)c));
+          super.write(c);
+        }
+
+        @Override
+        public void write(final char[] cbuf,
+                          final int off,
+                          final int len) throws IOException {
+          metrics.addBytes(CharBuffer.wrap(cbuf, off, len));
+          super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(final String str,
+                          final int off,
+                          final int len) throws IOException {
+          metrics.addBytes(CharBuffer.wrap(str, off, off + len));
+          super.write(str, off, len);
+        }
+      };
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /* Returns false if the content is not ASCII or the Filer does not
+     support output streams - nothing has been written in that case.
+   */
+  private boolean writeBytes(final JavaFileObject outFile,
+                             final CharSequence content)
+          throws IOException {
+    final long len = ProcessMetrics.utf8Length(content);
+    if (len != content.length()) {
+      // Non-ASCII - the compiler may not read the source as UTF-8
+      return false;
+    }
+
+    final var bytes = encode(content, (int)len);
+
+    final OutputStream os;
+    try {
+      os = outFile.openOutputStream();
+    } catch (final UnsupportedOperationException uoe) {
+      return false;
+    }
+
+    /* The Filer's stream is not file backed so a channel over it
+       would copy a direct buffer through a heap array anyway. */
+    try (os) {
+      os.write(bytes.array(), bytes.arrayOffset(), bytes.limit());
+    }
+
+    return true;
+  }
+
+  private ByteBuffer encode(final CharSequence content,
+                            final int len) {
+    if ((byteBuffer == null) || (byteBuffer.capacity() < len)) {
+      byteBuffer = ByteBuffer.allocate(Math.max(len, defaultBufferSize));
+    }
+
+    if (encoder == null) {
+      encoder = StandardCharsets.US_ASCII.newEncoder();
+    }
+
+    byteBuffer.clear();
+    encoder.reset();
+
+    final var in = CharBuffer.wrap(content);
+    CoderResult cr = encoder.encode(in, byteBuffer, true);
+    if (cr.isUnderflow()) {
+      cr = encoder.flush(byteBuffer);
+    }
+
+    if (!cr.isUnderflow()) {
+      try {
+        cr.throwException();
+      } catch (final IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    return byteBuffer.flip();
+  }
+
+  private static String originatingClass(final Element[] els) {
+    if ((els == null) || (els.length == 0) ||
+            !(els[0] instanceof final TypeElement te)) {
+      return null;
+    }
+
+    return te.getQualifiedName().toString();
+  }
+
+  /**
+   * @return number of files written
+   */
+  public int getWritten() {
+    return written;
+  }
+
+  /**
+   * @return number of files not written as unchanged
+   */
+  public int getUnchanged() {
+    return unchanged;
+  }
+
+  /** Save the fingerprints
+   *
+   */
+  public void save() {
+    if (index != null) {
+      index.save();
+    }
+  }
+}
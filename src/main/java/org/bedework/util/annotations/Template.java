@@ -1,18 +1,20 @@
 package org.bedework.util.annotations;
 
 import java.io.Closeable;
-import java.io.FileReader;
-import java.io.IOException;
-import java.io.LineNumberReader;
+import java.util.List;
 
 public class Template implements Closeable {
   private final ClassHandler cw;
 
-  private LineNumberReader templateRdr;
+  private final List<String> sections;
+
+  private int sectionIndex;
 
   /** We use a template file which has code insertion points marked by lines
    * starting with "++++".
    *
+   * <p>The file is parsed once and cached - see TemplateCache.
+   *
    * @param cw for writing
    * @param templateName of file
    */
@@ -20,24 +22,13 @@ public class Template implements Closeable {
                      final String templateName) {
     this.cw = cw;
 
-    try {
-      templateRdr = new LineNumberReader(new FileReader(templateName));
-    } catch (final Throwable t) {
-      throw new RuntimeException(t);
-    }
+    sections = TemplateCache.get(templateName).sections();
   }
 
-  /** Close reader
+  /** Nothing to close - retained for compatibility.
    *
    */
   public void close() {
-    try {
-      if (templateRdr != null) {
-        templateRdr.close();
-      }
-    } catch (final Throwable t) {
-      throw new RuntimeException(t);
-    }
   }
 
   /** Emit a section of template up to a delimiter or to end of file.
@@ -46,23 +37,17 @@ public class Template implements Closeable {
    * @throws RuntimeException on error
    */
   public boolean emitSection() {
-    for (;;) {
-      final String ln;
-      try {
-        ln = templateRdr.readLine();
-      } catch (final IOException e) {
-        throw new RuntimeException(e);
-      }
-
-      if (ln == null) {
-        return false;
-      }
+    if (sectionIndex >= sections.size()) {
+      return false;
+    }
 
-      if (ln.startsWith("++++")) {
-        return true;
-      }
+    final var section = sections.get(sectionIndex);
+    sectionIndex++;
 
-      cw.println(ln);
+    if (!section.isEmpty()) {
+      cw.prntncc(section);
     }
+
+    return sectionIndex < sections.size();
   }
 }
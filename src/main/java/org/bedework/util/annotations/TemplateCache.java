@@ -0,0 +1,159 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Parsed templates keyed by path. A template is read once and
+ * split into sections at the "++++" delimiter lines. Each section
+ * is held as a single pre-joined block of text, each line
+ * terminated by the line separator.
+ *
+ * <p>An entry is reparsed if the modification time of the file
+ * changes. Each entry has a digest of its content so the up-to-date
+ * checks can see that a template changed.
+ *
+ * @author douglm
+ */
+public class TemplateCache {
+  private static final Map<String, CompiledTemplate> templates =
+          new ConcurrentHashMap<>();
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param path of template file
+   * @param lastModified when parsed
+   * @param sections text between delimiters. The last section is
+   *                 the text after the final delimiter.
+   * @param digest of the content
+   */
+  public record CompiledTemplate(String path,
+                                 long lastModified,
+                                 List<String> sections,
+                                 String digest) {
+  }
+
+  private TemplateCache() {
+  }
+
+  /**
+   * @param templateName path of template file
+   * @return parsed template - possibly from cache
+   * @throws RuntimeException on error
+   */
+  public static CompiledTemplate get(final String templateName) {
+    final long lastModified = new File(templateName).lastModified();
+
+    final var ct = templates.get(templateName);
+    if ((ct != null) && (ct.lastModified() == lastModified)) {
+      hits.incrementAndGet();
+      return ct;
+    }
+
+    misses.incrementAndGet();
+    final var parsed = parse(templateName, lastModified);
+    templates.put(templateName, parsed);
+
+    return parsed;
+  }
+
+  /**
+   * @param templateName path of template file
+   * @return digest of content - empty if the file cannot be read
+   */
+  public static String digest(final String templateName) {
+    try {
+      return get(templateName).digest();
+    } catch (final RuntimeException e) {
+      return "";
+    }
+  }
+
+  /**
+   * @return paths of all templates read
+   */
+  public static Set<String> getPaths() {
+    return Set.copyOf(templates.keySet());
+  }
+
+  public static long getHits() {
+    return hits.get();
+  }
+
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  /** Discard all parsed templates
+   *
+   */
+  public static void clear() {
+    templates.clear();
+  }
+
+  private static CompiledTemplate parse(final String templateName,
+                                        final long lastModified) {
+    final List<String> sections = new ArrayList<>();
+    final var ls = System.lineSeparator();
+    final var content = new StringBuilder();
+
+    try (final var rdr =
+                 new LineNumberReader(new FileReader(templateName))) {
+      var sb = new StringBuilder();
+
+      for (;;) {
+        final String ln = rdr.readLine();
+
+        if (ln == null) {
+          sections.add(sb.toString());
+          break;
+        }
+
+        content.append(ln).append('\n');
+
+        if (ln.startsWith("++++")) {
+          sections.add(sb.toString());
+          sb = new StringBuilder();
+          continue;
+        }
+
+        sb.append(ln).append(ls);
+      }
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    return new CompiledTemplate(templateName,
+                                lastModified,
+                                Collections.unmodifiableList(sections),
+                                FingerprintIndex.digest(content));
+  }
+}
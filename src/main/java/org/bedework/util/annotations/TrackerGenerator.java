@@ -0,0 +1,207 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/** Generates &lt;Class&gt;Tracker - a wrapper which records which
+ * properties have been set. Each setter sets the bit for its
+ * property index in a long - or a long[] for more than 64
+ * properties - so tracking allocates nothing.
+ *
+ * <p>The indexes are those of the generated accessor.
+ *
+ * <p>A class with a getter or setter named like one of the
+ * tracker's own methods - e.g. getEntity() - is reported as an error.
+ *
+ * @author douglm
+ */
+public class TrackerGenerator implements SourceGenerator {
+  /* Methods of the tracker itself - delegating methods with these
+     names would not compile */
+  private static final Set<String> members =
+          Set.of("getEntity", "isDirty", "isChanged", "resetDirty",
+                 "changedProperties");
+
+  @Override
+  public String getName() {
+    return "tracker";
+  }
+
+  @Override
+  public String conflicts(final PropertyTable table) {
+    final var res = GeneratorSupport.conflicts(table);
+    if (res != null) {
+      return res;
+    }
+
+    for (final var p: table.properties()) {
+      for (final var m: new MethodDescriptor[]{p.getter(), p.setter()}) {
+        if ((m != null) && members.contains(m.name())) {
+          return "method " + m.name() +
+                  " clashes with a method of the tracker";
+        }
+      }
+    }
+
+    return null;
+  }
+
+  @Override
+  public String outFileName(final PropertyTable table) {
+    return table.generatedName("Tracker");
+  }
+
+  @Override
+  public CharSequence generate(final PropertyTable table) {
+    final var className = table.cls().simpleName() + "Tracker";
+    final var entityType = table.entityType();
+    final var props = table.properties();
+    final var single = props.size() <= 64;
+
+    final var sb = new StringBuilder(4096);
+
+    GeneratorSupport.header(sb, table, className,
+                            "Records which properties have been set.",
+                            "java.util.ArrayList",
+                            "java.util.List");
+    GeneratorSupport.indexes(sb, props);
+
+    sb.append(format("  private final %s entity;\n\n", entityType));
+
+    if (single) {
+      sb.append("  private long dirty;\n\n");
+    } else {
+      sb.append(format("  private final long[] dirty = new long[%d];\n\n",
+                       (props.size() + 63) / 64));
+    }
+
+    sb.append(format("""
+              public %2$s(final %1$s entity) {
+                this.entity = entity;
+              }
+
+              public %1$s getEntity() {
+                return entity;
+              }
+            """, entityType, className));
+
+    for (final var p: props) {
+      if (p.readable()) {
+        sb.append(format("""
+
+                  public %s %s() {
+                    return entity.%2$s();
+                  }
+                """, table.render(p.getter().returnType()),
+                                 p.getter().name()));
+      }
+
+      if (p.writable()) {
+        final String mark;
+        if (single) {
+          mark = format("dirty |= 1L << %s;", p.constName());
+        } else {
+          mark = format("dirty[%1$s >>> 6] |= 1L << %1$s;",
+                        p.constName());
+        }
+
+        sb.append(format("""
+
+                  public void %s(final %s val) {
+                    entity.%1$s(val);
+                    %s
+                  }
+                """, p.setter().name(),
+                                 table.render(p.setter().parameters()
+                                               .get(0).type()),
+                                 mark));
+      }
+    }
+
+    if (single) {
+      sb.append("""
+
+                public boolean isDirty() {
+                  return dirty != 0;
+                }
+
+                /**
+                 * @param index of property
+                 * @return true if the property has been set
+                 */
+                public boolean isChanged(final int index) {
+                  return (dirty & (1L << index)) != 0;
+                }
+
+                public void resetDirty() {
+                  dirty = 0;
+                }
+              """);
+    } else {
+      sb.append("""
+
+                public boolean isDirty() {
+                  for (final long word: dirty) {
+                    if (word != 0) {
+                      return true;
+                    }
+                  }
+
+                  return false;
+                }
+
+                /**
+                 * @param index of property
+                 * @return true if the property has been set
+                 */
+                public boolean isChanged(final int index) {
+                  return (dirty[index >>> 6] & (1L << index)) != 0;
+                }
+
+                public void resetDirty() {
+                  java.util.Arrays.fill(dirty, 0);
+                }
+              """);
+    }
+
+    sb.append("""
+
+                /**
+                 * @return names of properties set since creation or the
+                 *         last resetDirty() - in index order
+                 */
+                public List<String> changedProperties() {
+                  final List<String> res = new ArrayList<>();
+                  for (int i = 0; i < names.length; i++) {
+                    if (isChanged(i)) {
+                      res.add(names[i]);
+                    }
+                  }
+
+                  return res;
+                }
+              }
+              """);
+
+    return sb;
+  }
+}
@@ -0,0 +1,40 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+/** Broad classification of a type for code generation.
+ *
+ * @author douglm
+ */
+public enum TypeCategory {
+  /** Assignable to java.util.Collection */
+  COLLECTION,
+
+  /** Assignable to java.util.Map */
+  MAP,
+
+  /** An array */
+  ARRAY,
+
+  /** java.util.Optional or one of the primitive optionals */
+  OPTIONAL,
+
+  /** Anything else */
+  SCALAR
+}
@@ -0,0 +1,109 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/** Classifies types by assignability to the erased collection
+ * types. The erased types are resolved once on creation.
+ *
+ * @author douglm
+ */
+public class TypeClassifier {
+  private final Types types;
+
+  private final TypeMirror collectionType;
+  private final TypeMirror mapType;
+  private final TypeMirror iterableType;
+  private final TypeMirror[] optionalTypes;
+
+  /**
+   * @param env the processing environment
+   */
+  public TypeClassifier(final ProcessingEnvironment env) {
+    types = env.getTypeUtils();
+
+    collectionType = erased(env, "java.util.Collection");
+    mapType = erased(env, "java.util.Map");
+    iterableType = erased(env, "java.lang.Iterable");
+    optionalTypes = new TypeMirror[]{
+            erased(env, "java.util.Optional"),
+            erased(env, "java.util.OptionalInt"),
+            erased(env, "java.util.OptionalLong"),
+            erased(env, "java.util.OptionalDouble")
+    };
+  }
+
+  /**
+   * @param tm type to classify
+   * @return category - never null
+   */
+  public TypeCategory classify(final TypeMirror tm) {
+    switch (tm.getKind()) {
+      case ARRAY:
+        return TypeCategory.ARRAY;
+
+      case DECLARED:
+      case TYPEVAR:
+      case INTERSECTION:
+        break;
+
+      default:
+        return TypeCategory.SCALAR;
+    }
+
+    final var erased = types.erasure(tm);
+
+    if (types.isAssignable(erased, collectionType)) {
+      return TypeCategory.COLLECTION;
+    }
+
+    if (types.isAssignable(erased, mapType)) {
+      return TypeCategory.MAP;
+    }
+
+    for (final var otm: optionalTypes) {
+      if (types.isSameType(erased, otm)) {
+        return TypeCategory.OPTIONAL;
+      }
+    }
+
+    return TypeCategory.SCALAR;
+  }
+
+  /**
+   * @param tm type to test
+   * @return true if assignable to java.lang.Iterable
+   */
+  public boolean isIterable(final TypeMirror tm) {
+    if (tm.getKind().isPrimitive()) {
+      return false;
+    }
+
+    return types.isAssignable(types.erasure(tm), iterableType);
+  }
+
+  private static TypeMirror erased(final ProcessingEnvironment env,
+                                   final String className) {
+    return env.getTypeUtils().erasure(
+            env.getElementUtils().getTypeElement(className).asType());
+  }
+}
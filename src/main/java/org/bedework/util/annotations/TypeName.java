@@ -0,0 +1,172 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Predicate;
+
+/** Immutable structure of a type built from a TypeMirror - see
+ * TypeNames. Rendered as source using simple names where the type
+ * can be imported.
+ *
+ * @author douglm
+ */
+public sealed interface TypeName extends Serializable {
+  /** Append the source form of this type.
+   *
+   * @param sb to append to
+   * @param importer called for each declared type. Return true if
+   *                 the type is (or will be) imported and the
+   *                 simple name can be used.
+   */
+  void render(StringBuilder sb, Predicate<Declared> importer);
+
+  /**
+   * @param importer as for render
+   * @return source form of this type
+   */
+  default String render(final Predicate<Declared> importer) {
+    final var sb = new StringBuilder();
+    render(sb, importer);
+    return sb.toString();
+  }
+
+  /** A primitive type or void
+   *
+   * @param name e.g. "int"
+   */
+  record Primitive(String name) implements TypeName {
+    @Override
+    public void render(final StringBuilder sb,
+                       final Predicate<Declared> importer) {
+      sb.append(name);
+    }
+  }
+
+  /** A class or interface type
+   *
+   * @param packageName package - "" for the unnamed package
+   * @param qualifiedName including enclosing classes
+   * @param simpleName innermost name
+   * @param nested true for a member class
+   * @param typeArgs possibly empty type arguments
+   */
+  record Declared(String packageName,
+                  String qualifiedName,
+                  String simpleName,
+                  boolean nested,
+                  List<TypeName> typeArgs) implements TypeName {
+    @Override
+    public void render(final StringBuilder sb,
+                       final Predicate<Declared> importer) {
+      if (importer.test(this)) {
+        sb.append(simpleName);
+      } else {
+        sb.append(qualifiedName);
+      }
+
+      if (typeArgs.isEmpty()) {
+        return;
+      }
+
+      sb.append('<');
+      String delim = "";
+
+      for (final var ta: typeArgs) {
+        sb.append(delim);
+        delim = ", ";
+        ta.render(sb, importer);
+      }
+
+      sb.append('>');
+    }
+
+    /**
+     * @param currentPackage package of generated class
+     * @return true if no import is needed in the given package
+     */
+    public boolean implicit(final String currentPackage) {
+      if (nested) {
+        return false;
+      }
+
+      return "java.lang".equals(packageName) ||
+              packageName.equals(currentPackage);
+    }
+  }
+
+  /**
+   * @param component type of element
+   */
+  record ArrayOf(TypeName component) implements TypeName {
+    @Override
+    public void render(final StringBuilder sb,
+                       final Predicate<Declared> importer) {
+      component.render(sb, importer);
+      sb.append("[]");
+    }
+  }
+
+  /**
+   * @param bound possibly null bound
+   * @param superBound true for "? super"
+   */
+  record Wildcard(TypeName bound,
+                  boolean superBound) implements TypeName {
+    @Override
+    public void render(final StringBuilder sb,
+                       final Predicate<Declared> importer) {
+      sb.append('?');
+      if (bound == null) {
+        return;
+      }
+
+      if (superBound) {
+        sb.append(" super ");
+      } else {
+        sb.append(" extends ");
+      }
+      bound.render(sb, importer);
+    }
+  }
+
+  /**
+   * @param name of type variable
+   */
+  record TypeVar(String name) implements TypeName {
+    @Override
+    public void render(final StringBuilder sb,
+                       final Predicate<Declared> importer) {
+      sb.append(name);
+    }
+  }
+
+  /** Anything we can't represent - e.g. an unresolved type.
+   *
+   * @param text rendered as is
+   */
+  record Other(String text) implements TypeName {
+    @Override
+    public void render(final StringBuilder sb,
+                       final Predicate<Declared> importer) {
+      sb.append(text);
+    }
+  }
+}
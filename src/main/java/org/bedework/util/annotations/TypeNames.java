@@ -0,0 +1,165 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.NoType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.SimpleTypeVisitor14;
+
+/** Builds and interns TypeName trees from TypeMirrors. Equal trees
+ * are shared. Intended to be discarded at the end of each round.
+ *
+ * @author douglm
+ */
+public class TypeNames
+        extends SimpleTypeVisitor14<TypeName, Void> {
+  private final Elements elements;
+
+  private final Map<TypeMirror, TypeName> byMirror =
+          new IdentityHashMap<>();
+
+  private final Map<TypeName, TypeName> interned = new HashMap<>();
+
+  /**
+   * @param elements element utilities
+   */
+  public TypeNames(final Elements elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * @param tm the type
+   * @return interned type name
+   */
+  public TypeName get(final TypeMirror tm) {
+    final var cached = byMirror.get(tm);
+    if (cached != null) {
+      return cached;
+    }
+
+    final var res = tm.accept(this, null);
+    byMirror.put(tm, res);
+
+    return res;
+  }
+
+  /** Discard all cached names
+   *
+   */
+  public void clear() {
+    byMirror.clear();
+    interned.clear();
+  }
+
+  @Override
+  public TypeName visitPrimitive(final PrimitiveType t,
+                                 final Void unused) {
+    return intern(new TypeName.Primitive(
+            t.getKind().name().toLowerCase()));
+  }
+
+  @Override
+  public TypeName visitNoType(final NoType t,
+                              final Void unused) {
+    return intern(new TypeName.Primitive(t.toString()));
+  }
+
+  @Override
+  public TypeName visitArray(final ArrayType t,
+                             final Void unused) {
+    return intern(new TypeName.ArrayOf(get(t.getComponentType())));
+  }
+
+  @Override
+  public TypeName visitDeclared(final DeclaredType t,
+                                final Void unused) {
+    final var te = (TypeElement)t.asElement();
+
+    final var args = t.getTypeArguments();
+    final List<TypeName> typeArgs;
+    if (args.isEmpty()) {
+      typeArgs = List.of();
+    } else {
+      final var tas = new ArrayList<TypeName>(args.size());
+      for (final var ta: args) {
+        tas.add(get(ta));
+      }
+      typeArgs = Collections.unmodifiableList(tas);
+    }
+
+    return intern(new TypeName.Declared(
+            elements.getPackageOf(te).getQualifiedName().toString(),
+            te.getQualifiedName().toString(),
+            te.getSimpleName().toString(),
+            te.getNestingKind().isNested(),
+            typeArgs));
+  }
+
+  @Override
+  public TypeName visitWildcard(final WildcardType t,
+                                final Void unused) {
+    final var ext = t.getExtendsBound();
+    if (ext != null) {
+      return intern(new TypeName.Wildcard(get(ext), false));
+    }
+
+    final var sup = t.getSuperBound();
+    if (sup != null) {
+      return intern(new TypeName.Wildcard(get(sup), true));
+    }
+
+    return intern(new TypeName.Wildcard(null, false));
+  }
+
+  @Override
+  public TypeName visitTypeVariable(final TypeVariable t,
+                                    final Void unused) {
+    return intern(new TypeName.TypeVar(
+            t.asElement().getSimpleName().toString()));
+  }
+
+  @Override
+  protected TypeName defaultAction(final TypeMirror t,
+                                   final Void unused) {
+    return intern(new TypeName.Other(t.toString()));
+  }
+
+  private TypeName intern(final TypeName val) {
+    final var res = interned.putIfAbsent(val, val);
+    if (res == null) {
+      return val;
+    }
+
+    return res;
+  }
+}
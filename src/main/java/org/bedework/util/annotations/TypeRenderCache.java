@@ -0,0 +1,111 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/** Types rendered with simple names, together with the imports they
+ * need, cached by package of the generated class. Shared by all
+ * ClassHandlers for the round.
+ *
+ * @author douglm
+ */
+public class TypeRenderCache {
+  private final Map<String, Map<TypeName, Rendered>> byPackage =
+          new HashMap<>();
+
+  private long hits;
+  private long misses;
+
+  /**
+   * @param text source form using simple names
+   * @param declared types referenced by simple name
+   * @param importLines for each declared type the import statement
+   *                    or null if no import is needed
+   */
+  public record Rendered(String text,
+                         List<TypeName.Declared> declared,
+                         List<String> importLines) {
+  }
+
+  /**
+   * @param tn interned type name
+   * @param packageName package of generated class
+   * @return rendered form
+   */
+  public Rendered get(final TypeName tn,
+                      final String packageName) {
+    final var forPackage =
+            byPackage.computeIfAbsent(packageName,
+                                      k -> new IdentityHashMap<>());
+
+    final var cached = forPackage.get(tn);
+    if (cached != null) {
+      hits++;
+      return cached;
+    }
+
+    misses++;
+
+    final var declared = new ArrayList<TypeName.Declared>();
+    final var importLines = new ArrayList<String>();
+
+    final var text = tn.render(d -> {
+      if (!declared.contains(d)) {
+        declared.add(d);
+        if (d.implicit(packageName)) {
+          importLines.add(null);
+        } else {
+          importLines.add(format("import %s;", d.qualifiedName()));
+        }
+      }
+      return true;
+    });
+
+    final var res = new Rendered(
+            text,
+            Collections.unmodifiableList(declared),
+            Collections.unmodifiableList(importLines));
+    forPackage.put(tn, res);
+
+    return res;
+  }
+
+  /** Discard all entries
+   *
+   */
+  public void clear() {
+    byPackage.clear();
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,181 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.util.annotations;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Classes extending a generic superclass. Inherited members must
+ * be resolved with the type arguments of the subclass.
+ *
+ * @author douglm
+ */
+public class GenericSuperclassTest {
+  private static final String base = """
+          package test;
+
+          public class Base<T> {
+            private T id;
+
+            public T getId() {
+              return id;
+            }
+
+            public void setId(final T val) {
+              id = val;
+            }
+
+            public java.util.List<T> getIds() {
+              return null;
+            }
+
+            public void setIds(final java.util.List<T> val) {
+            }
+          }
+          """;
+
+  private static final String event = """
+          package test;
+
+          public class Event extends Base<Long> {
+            private String name;
+
+            public String getName() {
+              return name;
+            }
+
+            public void setName(final String val) {
+              name = val;
+            }
+
+            @Override
+            public void setId(final Long val) {
+              super.setId(val);
+            }
+          }
+          """;
+
+  /** Processes Event, embedding the methods of its superclasses. */
+  @SupportedAnnotationTypes("*")
+  public static class Processor extends AnnotationProcessor {
+    private ProcessState state;
+
+    @Override
+    public ProcessState getState(final ProcessingEnvironment env) {
+      if (state == null) {
+        state = new ProcessState(env) {
+          @Override
+          public ElementVisitor getVisitor() {
+            return new ElementVisitor();
+          }
+
+          @Override
+          public boolean startClass(final TypeElement el) {
+            return el.getQualifiedName().contentEquals("test.Event");
+          }
+
+          @Override
+          public boolean shouldProcessSuperMethods(final TypeMirror tm) {
+            return tm.toString().startsWith("test.");
+          }
+        };
+      }
+
+      return state;
+    }
+  }
+
+  @Test
+  public void generatedSourcesCompile() throws IOException {
+    final var out = Files.createTempDirectory("bwgeneric");
+    final var diags = compile(out);
+
+    final var errors = new ArrayList<String>();
+    for (final var d: diags.getDiagnostics()) {
+      if (d.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(d.toString());
+      }
+    }
+
+    assertEquals(List.of(), errors);
+
+    for (final var name: List.of("Accessor", "Tracker",
+                                 "Codec", "JsonWriter")) {
+      assertTrue(Files.exists(out.resolve("test/Event" + name + ".class")),
+                 "Event" + name + " not compiled");
+    }
+
+    final var accessor = Files.readString(
+            out.resolve("test/EventAccessor.java"));
+    assertTrue(accessor.contains("entity.setId((Long)val)"));
+    assertTrue(accessor.contains("List<Long>"));
+    assertFalse(accessor.contains("(T)"));
+  }
+
+  private static DiagnosticCollector<JavaFileObject> compile(
+          final Path out) {
+    final var compiler = ToolProvider.getSystemJavaCompiler();
+    final var diags = new DiagnosticCollector<JavaFileObject>();
+
+    final var task = compiler.getTask(
+            null, null, diags,
+            List.of("-d", out.toString(),
+                    "-s", out.toString(),
+                    "-Agenerators=accessor,tracker,codec,json"),
+            null,
+            List.of(source("test/Base", base),
+                    source("test/Event", event)));
+    task.setProcessors(List.of(new Processor()));
+    task.call();
+
+    return diags;
+  }
+
+  private static JavaFileObject source(final String path,
+                                       final String content) {
+    return new SimpleJavaFileObject(
+            URI.create("string:///" + path + ".java"),
+            JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(final boolean ignoreErrors) {
+        return content;
+      }
+    };
+  }
+}